@@ -0,0 +1,129 @@
+/*
+ * --------------------------------------------------------------------
+ * Job:			SettingCatalogueTransferJob
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The job copies the full vsdk_setting__c catalogue
+ * 				between this vault and a remote vault, one page at a
+ * 				time, so memory stays flat for any catalogue size.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.jobs;
+
+import com.veeva.vault.custom.settings.AdaptiveBatchSizer;
+import com.veeva.vault.custom.settings.CustomSettingService;
+import com.veeva.vault.custom.settings.ExampleSettings;
+import com.veeva.vault.custom.settings.LocalSettingStore;
+import com.veeva.vault.custom.settings.MirrorSettingStore;
+import com.veeva.vault.custom.settings.RemoteSaveOutcome;
+import com.veeva.vault.custom.settings.RemoteSettingStore;
+import com.veeva.vault.sdk.api.core.*;
+import com.veeva.vault.sdk.api.job.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * This class annotation (@JobInfo) indicates that this class is an SDK Job.
+ * Job parameters:
+ * 		connection_name - the remote connection
+ * 		direction - "export" pushes the local catalogue to the remote vault,
+ * 					"import" pulls the remote catalogue into this vault
+ * Each page is written with a single batch save (import) or a single upsert request (export).
+ * Export page sizes adapt to the observed write time, bounded by the batch sizes in ExampleSettings.
+ * A failed page is reported with TaskState.ERRORS_ENCOUNTERED, so a partial transfer is never reported as a success.
+ */
+@JobInfo(adminConfigurable = false)
+public class SettingCatalogueTransferJob implements Job {
+
+	private static final String PARAM_CONNECTION_NAME = "connection_name";
+	private static final String PARAM_DIRECTION = "direction";
+	private static final String DIRECTION_EXPORT = "export";
+	private static final int PAGE_SIZE = 200;
+
+	public JobInputSupplier init(JobInitContext jobInitContext) {
+		JobItem jobItem = jobInitContext.newJobItem();
+		jobItem.setValue(PARAM_CONNECTION_NAME, jobInitContext.getJobParameter(PARAM_CONNECTION_NAME, JobParamValueType.STRING));
+		jobItem.setValue(PARAM_DIRECTION, jobInitContext.getJobParameter(PARAM_DIRECTION, JobParamValueType.STRING));
+		return jobInitContext.newJobInput(VaultCollections.asList(jobItem));
+	}
+
+	public void process(JobProcessContext jobProcessContext) {
+		JobLogger logger = jobProcessContext.getJobLogger();
+		JobTask task = jobProcessContext.getCurrentTask();
+		CustomSettingService settingService = ServiceLocator.locate(CustomSettingService.class);
+		AdaptiveBatchSizer batchSizer = AdaptiveBatchSizer.fromSettings(settingService.getLocalSettings(ExampleSettings.class));
+
+		List<String> errors = VaultCollections.newList();
+		for (JobItem jobItem : task.getItems()) {
+			List<Integer> transferred = VaultCollections.newList();
+			transferred.add(0);
+			String connectionName = jobItem.getValue(PARAM_CONNECTION_NAME, JobValueType.STRING);
+			boolean isExport = DIRECTION_EXPORT.equals(jobItem.getValue(PARAM_DIRECTION, JobValueType.STRING));
+
+			LocalSettingStore localStore = new LocalSettingStore();
+			RemoteSettingStore remoteStore = new RemoteSettingStore(connectionName);
+
+			// Local copies of remote settings belong to the source vault's connections and are not transferred
+			Consumer<Map<String, String>> pageConsumer = page -> {
+				Map<String, String> settingsPage = VaultCollections.newMap();
+				for (Map.Entry<String, String> entry : page.entrySet()) {
+					if (!MirrorSettingStore.isMirrorRecordName(entry.getKey())) {
+						settingsPage.put(entry.getKey(), entry.getValue());
+					}
+				}
+				if (settingsPage.isEmpty()) {
+					return;
+				}
+
+				if (isExport) {
+					long startMillis = System.currentTimeMillis();
+					RemoteSaveOutcome outcome = remoteStore.upsert(RemoteSettingStore.toRecordModels(settingsPage));
+					batchSizer.recordBatch(System.currentTimeMillis() - startMillis, outcome.isSuccess() ? 0 : settingsPage.size());
+					if (!outcome.isSuccess()) {
+						logger.log("Failed to export " + settingsPage.size() + " setting(s): " + outcome.getMessage());
+						errors.add("Failed to export " + settingsPage.size() + " setting(s) to " + connectionName + ": " + outcome.getMessage());
+						return;
+					}
+				} else {
+					localStore.write(settingsPage);
+				}
+				transferred.set(0, transferred.get(0) + settingsPage.size());
+			};
+
+			if (isExport) {
+				localStore.readAll(batchSizer::getBatchSize, pageConsumer);
+			} else if (!remoteStore.readAll(PAGE_SIZE, pageConsumer)) {
+				// A failed page ends the read, so the pages after it were never imported
+				errors.add("Import from " + connectionName + " stopped at a failed query page after " + transferred.get(0) + " setting(s)");
+				logger.log(errors.get(errors.size() - 1));
+			}
+
+			batchSizer.persist(settingService);
+			logger.log((isExport ? "Exported " : "Imported ") + transferred.get(0) + " setting(s) with " + connectionName);
+		}
+
+		if (errors.isEmpty()) {
+			task.getTaskOutput().setState(TaskState.SUCCESS);
+		} else {
+			task.getTaskOutput().setState(TaskState.ERRORS_ENCOUNTERED);
+			task.getTaskOutput().setValue("firstError", errors.get(0));
+		}
+	}
+
+	public void completeWithSuccess(JobCompletionContext jobCompletionContext) {
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("Settings catalogue transfer complete");
+	}
+
+	public void completeWithError(JobCompletionContext jobCompletionContext) {
+		JobResult result = jobCompletionContext.getJobResult();
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("completeWithError: " + result.getNumberFailedTasks() + " tasks failed out of " + result.getNumberTasks());
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * --------------------------------------------------------------------
+ * Job:			SettingCompactionJob
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The job removes duplicate vsdk_setting__c records,
+ * 				keeping the newest record of each name, stale version
+ * 				claims, and shared payload records that no setting
+ * 				points at anymore.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.jobs;
+
+import com.veeva.vault.custom.settings.LocalSettingStore;
+import com.veeva.vault.sdk.api.core.*;
+import com.veeva.vault.sdk.api.job.*;
+
+/**
+ * This class annotation (@JobInfo) indicates that this class is an SDK Job.
+ * name__v is unique on vsdk_setting__c, so duplicates can only remain from before the constraint;
+ * the job is meant to be run once per vault, and again after data loads that bypassed it.
+ * Payload records are never updated, so a payload is left behind whenever the last setting pointing at it changes;
+ * scheduling the job keeps those orphaned payloads from accumulating.
+ */
+@JobInfo(adminConfigurable = true)
+public class SettingCompactionJob implements Job {
+
+	private static final String ITEM_OBJECT_NAME = "object_name";
+	private static final String OBJECT_SDK_SETTING = "vsdk_setting__c";
+	private static final int DELETE_BATCH_SIZE = 500;
+	// Each payload delete batch is checked with a json_hash__c CONTAINS query, which bounds its size
+	private static final int PAYLOAD_DELETE_BATCH_SIZE = 200;
+
+	/**
+	 * Creates a single job item; the records are streamed in process
+	 */
+	public JobInputSupplier init(JobInitContext jobInitContext) {
+		JobItem jobItem = jobInitContext.newJobItem();
+		jobItem.setValue(ITEM_OBJECT_NAME, OBJECT_SDK_SETTING);
+		return jobInitContext.newJobInput(VaultCollections.asList(jobItem));
+	}
+
+	/**
+	 * Deletes all but the newest record of each settings name, then stale version claims
+	 * and the payloads that are no longer referenced
+	 */
+	public void process(JobProcessContext jobProcessContext) {
+		JobLogger logger = jobProcessContext.getJobLogger();
+		JobTask task = jobProcessContext.getCurrentTask();
+
+		int deleted = new LocalSettingStore().deleteDuplicates(DELETE_BATCH_SIZE);
+		logger.log("Deleted " + deleted + " duplicate setting record(s)");
+
+		int deletedClaims = new LocalSettingStore().deleteStaleVersionClaims(DELETE_BATCH_SIZE);
+		logger.log("Deleted " + deletedClaims + " stale version claim(s)");
+
+		int deletedPayloads = new LocalSettingStore().deleteUnreferencedPayloads(PAYLOAD_DELETE_BATCH_SIZE);
+		logger.log("Deleted " + deletedPayloads + " unreferenced payload record(s)");
+
+		task.getTaskOutput().setState(TaskState.SUCCESS);
+	}
+
+	public void completeWithSuccess(JobCompletionContext jobCompletionContext) {
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("Settings compaction complete");
+	}
+
+	public void completeWithError(JobCompletionContext jobCompletionContext) {
+		JobResult result = jobCompletionContext.getJobResult();
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("completeWithError: " + result.getNumberFailedTasks() + " tasks failed out of " + result.getNumberTasks());
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * --------------------------------------------------------------------
+ * Job:			SettingPrewarmJob
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The job refreshes the local copies of the settings
+ * 				of every remote connection, so record triggers can
+ * 				read remote settings without calling the remote vault.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.jobs;
+
+import com.veeva.vault.custom.settings.CustomSettingService;
+import com.veeva.vault.custom.settings.ExampleSettings;
+import com.veeva.vault.sdk.api.core.*;
+import com.veeva.vault.sdk.api.job.*;
+import com.veeva.vault.sdk.api.query.QueryResponse;
+import com.veeva.vault.sdk.api.query.QueryService;
+
+import java.util.List;
+
+/**
+ * This class annotation (@JobInfo) indicates that this class is an SDK Job.
+ * Each job item is one connection; the job's chunk size controls how many connections a task refreshes.
+ */
+@JobInfo(adminConfigurable = true)
+public class SettingPrewarmJob implements Job {
+
+	private static final String ITEM_CONNECTION_NAME = "connection_name";
+
+	/**
+	 * Creates one job item per connection
+	 */
+	public JobInputSupplier init(JobInitContext jobInitContext) {
+		JobLogger logger = jobInitContext.getJobLogger();
+		List<JobItem> jobItems = VaultCollections.newList();
+
+		QueryService queryService = ServiceLocator.locate(QueryService.class);
+		QueryResponse queryResponse = queryService.query("SELECT api_name__sys FROM connection__sys WHERE status__v = 'active__v'");
+		queryResponse.streamResults().forEach(queryResult -> {
+			JobItem jobItem = jobInitContext.newJobItem();
+			jobItem.setValue(ITEM_CONNECTION_NAME, queryResult.getValue("api_name__sys", ValueType.STRING));
+			jobItems.add(jobItem);
+		});
+
+		logger.log("Refreshing remote settings for " + jobItems.size() + " connection(s)");
+		return jobInitContext.newJobInput(jobItems);
+	}
+
+	/**
+	 * Refreshes the local copies of all known settings for each connection in the task
+	 */
+	public void process(JobProcessContext jobProcessContext) {
+		JobLogger logger = jobProcessContext.getJobLogger();
+		JobTask task = jobProcessContext.getCurrentTask();
+		CustomSettingService settingService = ServiceLocator.locate(CustomSettingService.class);
+		List<String> errors = VaultCollections.newList();
+
+		// A connection that cannot be read keeps its previous local copies; the other connections are still refreshed
+		for (JobItem jobItem : task.getItems()) {
+			String connectionName = jobItem.getValue(ITEM_CONNECTION_NAME, JobValueType.STRING);
+			if (settingService.refreshRemoteSettings(getSettingsClasses(), connectionName)) {
+				logger.log("Refreshed remote settings for " + connectionName);
+			} else {
+				errors.add("Remote settings could not be read from " + connectionName);
+				logger.log(errors.get(errors.size() - 1));
+			}
+		}
+
+		if (errors.isEmpty()) {
+			task.getTaskOutput().setState(TaskState.SUCCESS);
+		} else {
+			task.getTaskOutput().setState(TaskState.ERRORS_ENCOUNTERED);
+			task.getTaskOutput().setValue("firstError", errors.get(0));
+		}
+	}
+
+	public void completeWithSuccess(JobCompletionContext jobCompletionContext) {
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("All remote settings refreshed");
+	}
+
+	public void completeWithError(JobCompletionContext jobCompletionContext) {
+		JobResult result = jobCompletionContext.getJobResult();
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("completeWithError: " + result.getNumberFailedTasks() + " tasks failed out of " + result.getNumberTasks());
+	}
+
+	/**
+	 * Settings classes that are kept in sync with remote vaults
+	 *
+	 * @return List of settings interfaces
+	 */
+	List<Class<? extends UserDefinedModel>> getSettingsClasses() {
+		List<Class<? extends UserDefinedModel>> settingsClasses = VaultCollections.newList();
+		settingsClasses.add(ExampleSettings.class);
+		return settingsClasses;
+	}
+}
@@ -19,11 +19,13 @@ package com.veeva.vault.custom.recordtriggers;
 import com.veeva.vault.custom.settings.*;
 import com.veeva.vault.sdk.api.core.*;
 import com.veeva.vault.sdk.api.data.*;
+import com.veeva.vault.sdk.api.json.JsonService;
 import com.veeva.vault.sdk.api.query.QueryResponse;
 import com.veeva.vault.sdk.api.query.QueryService;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class annotation (@RecordTriggerInfo) indicates that this class is a record trigger.
@@ -32,37 +34,96 @@ import java.util.List;
 @RecordTriggerInfo(object = "vsdk_udm_example__c", events = {RecordEvent.BEFORE_INSERT, RecordEvent.BEFORE_UPDATE})
 public class ExampleUDMTrigger implements RecordTrigger {
 
+	private static final String OBJECT_NAME = "vsdk_udm_example__c";
 	private static final String OBJECT_FIELD_RESULTS = "results__c";
-	private static final int DEFAULT_BATCH_SIZE = 500;
-	private static final String DEFAULT_STATUS_TYPE = "pending__c";
+	private static final String OBJECT_FIELD_REMOTE_CONNECTION = "remote_connection__c";
+	private static final String TRANSACTION_NAME = "ExampleUDMTrigger";
 
 	/**
 	 * Example record trigger to load/save settings from local and remote vaults.
 	 * The settings values are displayed in a RichText field on this object
 	 */
 	public void execute(RecordTriggerContext context) {
-		// Usually you would not get just the single record, this is for demo purposes only
-		Record firstRecord = context.getRecordChanges().get(0).getNew();
-
-		// Uses the getLocalSettingsExample to get the local settings example record
-		ExampleSettings exampleLocalSettings = getLocalSettingExample();
-		StringBuilder results = new StringBuilder();
-		results.append("<B>Local Batch Size<B>: ");
-		results.append(exampleLocalSettings.getBatchSize().toPlainString());
-
-		// Remote settings example (if connection is provided)
-		String remoteConnectionId = firstRecord.getValue("remote_connection__c", ValueType.STRING);
-		if (remoteConnectionId != null) {
-			String remoteConnectionName = getConnectionName(remoteConnectionId);
-
-			ExampleSettings exampleRemoteSettings = getRemoteSettingExample(remoteConnectionName);
-			results.append("<BR> ");
-			results.append("<B>Remote Batch Size<B>: ");
-			results.append(exampleRemoteSettings.getBatchSize().toPlainString());
+		// Tracing is opt-in through trace_min_millis, so nothing is recorded until the settings show that it is enabled
+		// The root span then starts at this time, so the settings read that enabled it is covered by the trace
+		long startMillis = System.currentTimeMillis();
+		SettingTracer tracer = null;
+		BigDecimal traceMinMillis = null;
+		try {
+			// On update, only records whose inputs changed need new results
+			List<Record> changedRecords = VaultCollections.newList();
+			boolean isUpdate = context.getRecordEvent() == RecordEvent.BEFORE_UPDATE;
+			for (RecordChange recordChange : context.getRecordChanges()) {
+				if (!isUpdate || hasInputChanges(recordChange)) {
+					changedRecords.add(recordChange.getNew());
+				}
+			}
+			if (changedRecords.isEmpty()) {
+				return;
+			}
+
+			// Settings are loaded once per execution and frozen into snapshots,
+			// so the per-record loop below only reads primitive fields
+			// Settings without a batch size fall back to the bundled defaults
+			int defaultBatchSize = getDefaultSettingExample().getBatchSize().intValue();
+			ExampleSettings localSettings = getLocalSettingExample();
+			ExampleSettingsSnapshot localSnapshot = ExampleSettingsSnapshot.of(localSettings, defaultBatchSize);
+			Map<String, ExampleSettingsSnapshot> remoteSnapshots = VaultCollections.newMap();
+			traceMinMillis = localSettings == null ? null : localSettings.getTraceMinMillis();
+
+			// The local settings are cached for the request, so later executions check the flag without another read
+			if (traceMinMillis != null) {
+				tracer = SettingTracer.start(TRANSACTION_NAME, startMillis);
+				if (tracer != null) {
+					tracer.getRootSpan()
+							.setAttribute("event", context.getRecordEvent().toString())
+							.setAttribute("record_count", changedRecords.size());
+				}
+			}
+
+			for (Record record : changedRecords) {
+
+				StringBuilder results = new StringBuilder();
+				results.append("<B>Local Batch Size<B>: ");
+				results.append(localSnapshot.getBatchSize());
+
+				// Remote settings example (if connection is provided)
+				String remoteConnectionId = record.getValue(OBJECT_FIELD_REMOTE_CONNECTION, ValueType.STRING);
+				if (remoteConnectionId != null) {
+					ExampleSettingsSnapshot remoteSnapshot = remoteSnapshots.get(remoteConnectionId);
+					if (remoteSnapshot == null) {
+						String remoteConnectionName = getConnectionName(remoteConnectionId);
+						remoteSnapshot = ExampleSettingsSnapshot.of(getRemoteSettingExample(remoteConnectionName), defaultBatchSize);
+						remoteSnapshots.put(remoteConnectionId, remoteSnapshot);
+					}
+
+					results.append("<BR> ");
+					results.append("<B>Remote Batch Size<B>: ");
+					results.append(remoteSnapshot.getBatchSize());
+				}
+
+				record.setValue(OBJECT_FIELD_RESULTS, results.toString());
+			}
+		} finally {
+			// Only transactions that took at least trace_min_millis are saved to vsdk_trace__c
+			if (tracer != null) {
+				tracer.finish(traceMinMillis);
+			}
 		}
+	}
 
-		// For this example we are only setting the first record
-		firstRecord.setValue(OBJECT_FIELD_RESULTS, results.toString());
+	/**
+	 * Compares the old and new values of the fields that drive the results
+	 *
+	 * @return true if the results need to be recalculated
+	 */
+	boolean hasInputChanges(RecordChange recordChange) {
+		String oldConnectionId = recordChange.getOld().getValue(OBJECT_FIELD_REMOTE_CONNECTION, ValueType.STRING);
+		String newConnectionId = recordChange.getNew().getValue(OBJECT_FIELD_REMOTE_CONNECTION, ValueType.STRING);
+		if (oldConnectionId == null) {
+			return newConnectionId != null;
+		}
+		return !oldConnectionId.equals(newConnectionId);
 	}
 
 	/**
@@ -75,12 +136,17 @@ public class ExampleUDMTrigger implements RecordTrigger {
 		StringBuilder query = new StringBuilder();
 		query.append("SELECT api_name__sys");
 		query.append(" FROM connection__sys");
-		query.append(" WHERE id = '" + connectionId + "'");
-		QueryService queryService = ServiceLocator.locate(QueryService.class);
-		QueryResponse queryResponse = queryService.query(query.toString());
-		queryResponse.streamResults().forEach(queryResult -> {
-			results.add(queryResult.getValue("api_name__sys", ValueType.STRING));
-		});
+		query.append(" WHERE id = " + SettingQueries.quote(connectionId));
+		SettingSpan span = SettingTracer.startSpan("getConnectionName", SettingTracer.CATEGORY_QUERY);
+		try {
+			QueryService queryService = ServiceLocator.locate(QueryService.class);
+			QueryResponse queryResponse = queryService.query(query.toString());
+			queryResponse.streamResults().forEach(queryResult -> {
+				results.add(queryResult.getValue("api_name__sys", ValueType.STRING));
+			});
+		} finally {
+			span.end();
+		}
 
 		if (!results.isEmpty()) {
 			return results.get(0);
@@ -90,7 +156,7 @@ public class ExampleUDMTrigger implements RecordTrigger {
 	}
 
 	/**
-	 * Gets an example settings from the local vault. Creates/Saves new values if not found
+	 * Gets an example settings from the local vault. Uses the bundled defaults if not found
 	 *
 	 * @return ExampleSettings
 	 */
@@ -98,36 +164,33 @@ public class ExampleUDMTrigger implements RecordTrigger {
 		// Load settings from the local vault
 		// Get an instance of the CustomSetting service
 		CustomSettingService settingService = ServiceLocator.locate(CustomSettingService.class);
-		// The getLocalSettings method gets the example custom sdk job settings from the local vault
+		// The getScopedSettings method gets the example custom sdk job settings from the local vault
+		// Any object-level overrides for vsdk_udm_example__c are layered over the global settings
+		// If the global settings were never saved, the defaults bundled in SettingDefaults are used, so nothing is saved here
 		// It return the record as a ExampleSettings User defined model
-		ExampleSettings jobSetting = settingService.getLocalSettings(ExampleSettings.class);
+		ExampleSettings jobSetting = settingService.getScopedSettings(ExampleSettings.class, OBJECT_NAME, null);
 
 		// If the model is not null, log the local model's batch size
 		if (jobSetting != null) {
 			LogService logger = ServiceLocator.locate(LogService.class);
-			logger.debug("Current Local BatchSize = {}",jobSetting.getBatchSize().toString());
-		} else {
-			// If the record is not found in the local vault, then create an empty ExampleSettings UDM
-			// Set values on the newly created UDM and save it
-
-			// Get an instance of the UserDefinedModelService
-			UserDefinedModelService modelService = ServiceLocator.locate(UserDefinedModelService.class);
-			// Create a new empty UserDefinedModel instance of the ExampleSettings model
-			jobSetting = modelService.newUserDefinedModel(ExampleSettings.class);
-
-			// Set default values
-			jobSetting.setBatchSize(new BigDecimal(DEFAULT_BATCH_SIZE));
-			jobSetting.setStatusTypes(VaultCollections.asList(DEFAULT_STATUS_TYPE));
-
-			// Save new ExampleSettings UDM to local vault
-			settingService.saveLocalSettings(jobSetting, ExampleSettings.class);
+			logger.debug("Current Local BatchSize = {}", String.valueOf(jobSetting.getBatchSize()));
 		}
 
 		return jobSetting;
 	}
 
 	/**
-	 * Gets an example settings from the remote vault. Creates/Saves new values if not found
+	 * Gets the example settings bundled in SettingDefaults, generated from javasdk/settings-defaults
+	 *
+	 * @return ExampleSettings
+	 */
+	ExampleSettings getDefaultSettingExample() {
+		JsonService jsonService = ServiceLocator.locate(JsonService.class);
+		return jsonService.convertToUserDefinedModel(SettingDefaults.getJson(ExampleSettings.class.getName()), ExampleSettings.class);
+	}
+
+	/**
+	 * Gets an example settings from the remote vault. Saves the bundled defaults if not found
 	 *
 	 * @return ExampleSettings
 	 */
@@ -135,25 +198,17 @@ public class ExampleUDMTrigger implements RecordTrigger {
 		// Get an instance of the CustomSetting Service
 		CustomSettingService settingService = ServiceLocator.locate(CustomSettingService.class);
 		// Load settings from the remote vault
+		// A failed query returns no settings; the defaults below are then used, but not saved over the unread remote settings
 		ExampleSettings jobSetting = settingService.getRemoteSettings(ExampleSettings.class, connectionName);
 
 		// If the model is not null, log the remote model's batch size
-		// Otherwise create an empty UDM, set values, and then save the settings in the remote vault
+		// Otherwise save the bundled defaults, the same document local reads fall back to, in the remote vault
 		if (jobSetting != null) {
 			LogService logger = ServiceLocator.locate(LogService.class);
-			logger.debug("Current Remote BatchSize = {}",jobSetting.getBatchSize().toString());
+			logger.debug("Current Remote BatchSize = {}", String.valueOf(jobSetting.getBatchSize()));
 		}
 		else {
-			// Get an instance of the UserDefinedModelService
-			UserDefinedModelService modelService = ServiceLocator.locate(UserDefinedModelService.class);
-			// Create a new empty UserDefinedModel instance of the ExampleSettings model
-			jobSetting = modelService.newUserDefinedModel(ExampleSettings.class);
-
-			// Set default values
-			jobSetting.setBatchSize(new BigDecimal(DEFAULT_BATCH_SIZE));
-			jobSetting.setStatusTypes(VaultCollections.asList(DEFAULT_STATUS_TYPE));
-
-			settingService.saveLocalSettings(jobSetting, ExampleSettings.class);
+			jobSetting = getDefaultSettingExample();
 
 			// Save new ExampleSettings UDM to the remote vault
 			settingService.saveRemoteSettings(jobSetting, ExampleSettings.class, connectionName);
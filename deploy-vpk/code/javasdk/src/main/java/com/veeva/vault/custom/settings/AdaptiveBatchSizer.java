@@ -0,0 +1,123 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	AdaptiveBatchSizer
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Adjusts the effective batch size of bulk processing
+ * 				from observed batch latency and errors, within the
+ * 				bounds configured in ExampleSettings.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.ServiceLocator;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.json.JsonService;
+
+import java.math.BigDecimal;
+
+/**
+ * Additive-increase/multiplicative-decrease batch size controller.
+ * batch_size is the ceiling and min_batch_size the floor. A batch that had errors or took longer than
+ * target_batch_millis halves the batch size; any other batch grows it by a tenth of the ceiling.
+ * The learned size is stored as learned_batch_size and used as the starting point of the next run.
+ * Bounds that are not configured come from the bundled defaults in SettingDefaults.
+ */
+@UserDefinedClassInfo
+public final class AdaptiveBatchSizer {
+
+	private static final int INCREASE_DIVISOR = 10;
+	private static final int MAX_PERSIST_ATTEMPTS = 3;
+
+	private final int maxBatchSize;
+	private final int minBatchSize;
+	private final long targetBatchMillis;
+	private final int initialBatchSize;
+	private int batchSize;
+
+	private AdaptiveBatchSizer(int maxBatchSize, int minBatchSize, long targetBatchMillis, int initialBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+		this.minBatchSize = Math.min(minBatchSize, maxBatchSize);
+		this.targetBatchMillis = targetBatchMillis;
+		this.initialBatchSize = clamp(initialBatchSize);
+		this.batchSize = this.initialBatchSize;
+	}
+
+	/**
+	 * Creates a controller from the configured bounds and the last learned batch size
+	 *
+	 * @param settings the example settings (may be null)
+	 *
+	 * @return AdaptiveBatchSizer
+	 */
+	public static AdaptiveBatchSizer fromSettings(ExampleSettings settings) {
+		JsonService jsonService = ServiceLocator.locate(JsonService.class);
+		ExampleSettings defaults = jsonService.convertToUserDefinedModel(SettingDefaults.getJson(ExampleSettings.class.getName()), ExampleSettings.class);
+		int defaultBatchSize = defaults.getBatchSize().intValue();
+		long defaultTargetBatchMillis = defaults.getTargetBatchMillis().longValue();
+		if (settings == null) {
+			return new AdaptiveBatchSizer(defaultBatchSize, defaults.getMinBatchSize().intValue(), defaultTargetBatchMillis, defaultBatchSize);
+		}
+
+		int maxBatchSize = intValue(settings.getBatchSize(), defaultBatchSize);
+		return new AdaptiveBatchSizer(maxBatchSize,
+				intValue(settings.getMinBatchSize(), defaults.getMinBatchSize().intValue()),
+				settings.getTargetBatchMillis() == null ? defaultTargetBatchMillis : settings.getTargetBatchMillis().longValue(),
+				intValue(settings.getLearnedBatchSize(), maxBatchSize));
+	}
+
+	private static int intValue(BigDecimal value, int defaultValue) {
+		return value == null ? defaultValue : value.intValue();
+	}
+
+	private int clamp(int size) {
+		return Math.max(minBatchSize, Math.min(maxBatchSize, size));
+	}
+
+	/**
+	 * @return the batch size to use for the next batch
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Records the result of a batch and adjusts the batch size
+	 *
+	 * @param elapsedMillis time taken to process the batch
+	 * @param errorCount number of failed items in the batch
+	 */
+	public void recordBatch(long elapsedMillis, int errorCount) {
+		if (errorCount > 0 || elapsedMillis > targetBatchMillis) {
+			batchSize = clamp(batchSize / 2);
+		} else {
+			batchSize = clamp(batchSize + Math.max(1, maxBatchSize / INCREASE_DIVISOR));
+		}
+	}
+
+	/**
+	 * Stores the learned batch size in the local ExampleSettings, if it changed during this run
+	 *
+	 * @param settingService the settings service
+	 */
+	public void persist(CustomSettingService settingService) {
+		if (batchSize == initialBatchSize) {
+			return;
+		}
+
+		int learnedBatchSize = batchSize;
+		settingService.updateLocalSettings(ExampleSettings.class, currentSettings -> {
+			if (currentSettings != null) {
+				currentSettings.setLearnedBatchSize(new BigDecimal(learnedBatchSize));
+			}
+			return currentSettings;
+		}, MAX_PERSIST_ATTEMPTS);
+	}
+}
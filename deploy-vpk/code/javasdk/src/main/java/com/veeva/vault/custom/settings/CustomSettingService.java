@@ -19,10 +19,15 @@ package com.veeva.vault.custom.settings;
 
 import com.veeva.vault.sdk.api.core.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @UserDefinedServiceInfo
 public interface CustomSettingService extends UserDefinedService {
 	/**
-	 * Retrieves local setting
+	 * Retrieves local setting, or the bundled defaults if it has not been saved
+	 * The model is shared by all reads of the same payload in the request and must not be modified.
 	 *
 	 * @return the user-defined model representation of the settings
 	 */
@@ -37,15 +42,94 @@ public interface CustomSettingService extends UserDefinedService {
 
 	/**
 	 * Retrieves remote setting
+	 * The model is shared by all reads of the same payload in the request and must not be modified.
+	 * A remote vault that cannot be queried fails the request rather than reading as not found.
 	 *
-	 * @return the user-defined model representation of the settings
+	 * @return the user-defined model representation of the settings, or null if the remote vault has none
 	 */
 	<U extends UserDefinedModel> U getRemoteSettings(Class<U> settingsClass, String connectionName);
 
+	/**
+	 * Retrieves remote settings of several classes in one request
+	 *
+	 * @return the user-defined model of each class that was found
+	 */
+	Map<Class<? extends UserDefinedModel>, UserDefinedModel> getBulkRemoteSettings(List<Class<? extends UserDefinedModel>> settingsClasses, String connectionName);
+
 	/**
 	 * Saves remote setting
 	 *
 	 * @return success/failure
 	 */
 	<U extends UserDefinedModel> void saveRemoteSettings(U settingsModel, Class<U> settingsClass, String connectionName);
+
+	/**
+	 * Saves remote setting as a patch of the properties changed since the last sync
+	 *
+	 * @return success/failure
+	 */
+	<U extends UserDefinedModel> void saveRemoteSettingsDelta(U settingsModel, Class<U> settingsClass, String connectionName);
+
+	/**
+	 * Saves one setting to many remote vaults
+	 *
+	 * @return outcome by connection name
+	 */
+	<U extends UserDefinedModel> Map<String, RemoteSaveOutcome> broadcastRemoteSettings(U settingsModel, Class<U> settingsClass, List<String> connectionNames);
+
+	/**
+	 * Retrieves local setting resolved across the global, object-level and connection-level scopes
+	 *
+	 * @return the user-defined model representation of the effective settings
+	 */
+	<U extends UserDefinedModel> U getScopedSettings(Class<U> settingsClass, String objectName, String connectionName);
+
+	/**
+	 * Saves local setting for a single scope
+	 *
+	 * @return success/failure
+	 */
+	<U extends UserDefinedModel> void saveScopedSettings(U settingsModel, Class<U> settingsClass, SettingScope scope);
+
+	/**
+	 * Refreshes the local copies of remote settings
+	 *
+	 * @return success/failure
+	 */
+	boolean refreshRemoteSettings(List<Class<? extends UserDefinedModel>> settingsClasses, String connectionName);
+
+	/**
+	 * Retrieves local setting together with its record version
+	 *
+	 * @return the user-defined model representation of the settings and its version
+	 */
+	<U extends UserDefinedModel> VersionedSetting<U> getVersionedLocalSettings(Class<U> settingsClass);
+
+	/**
+	 * Saves local setting only if the stored version matches the expected version.
+	 * Concurrent compare-and-set saves of the same version are decided by the unique name of a version claim record,
+	 * so exactly one of them is saved; saveLocalSettings is not checked against the version.
+	 *
+	 * @return saved with the new version, or conflict with the current version
+	 */
+	<U extends UserDefinedModel> SettingSaveResult compareAndSaveLocalSettings(U settingsModel, Class<U> settingsClass, long expectedVersion);
+
+	/**
+	 * Read-modify-write of local setting, retried on version conflicts
+	 *
+	 * @return the result of the last attempt
+	 */
+	<U extends UserDefinedModel> SettingSaveResult updateLocalSettings(Class<U> settingsClass, SettingUpdater<U> updater, int maxAttempts);
+
+	/**
+	 * Appends a small change to local setting without rewriting the settings document
+	 */
+	<U extends UserDefinedModel> void appendSettingOperation(Class<U> settingsClass, SettingScope scope, SettingOperation operation);
+
+	/**
+	 * Compares local settings with the settings of each remote vault by content hash only
+	 *
+	 * @return names of the settings that differ or exist on one side only, by connection name
+	 */
+	Map<String, Set<String>> findDivergentSettings(List<String> connectionNames);
 }
\ No newline at end of file
@@ -18,51 +18,113 @@
 package com.veeva.vault.custom.settings;
 
 import com.veeva.vault.sdk.api.core.*;
-import com.veeva.vault.sdk.api.data.Record;
-import com.veeva.vault.sdk.api.data.RecordService;
-import com.veeva.vault.sdk.api.http.HttpMethod;
-import com.veeva.vault.sdk.api.http.HttpRequest;
-import com.veeva.vault.sdk.api.http.HttpResponseBodyValueType;
-import com.veeva.vault.sdk.api.http.HttpService;
 import com.veeva.vault.sdk.api.json.JsonService;
-import com.veeva.vault.sdk.api.query.QueryResponse;
-import com.veeva.vault.sdk.api.query.QueryService;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @UserDefinedServiceInfo
 public class CustomSettingServiceImpl implements CustomSettingService {
 
-    private static final String API_VERSION = "v21.2";
-    private static final String OBJECT_SDK_SETTING = "vsdk_setting__c";
-    private static final String OBJECT_FIELD_ID = "id";
-    private static final String OBJECT_FIELD_JSON = "json__c";
-    private static final String OBJECT_FIELD_NAME = "name__v";
-    private static final String QUERY_ID_PARAM = "idParam";
-
     /**
-     * getLocalSettingsResponse queries the local vault using the QueryService
-     * Returns only the id or the id, name__v, and JSON as plaintext
-     *
+     * Reads settings through the given store, applies pending delta patches and upgrades outdated JSON
+     * to the current schema version. Patched or migrated JSON is written back opportunistically,
+     * so each record is only patched and migrated once.
      *
      * @param settingsClass the interface reference
-     * @param includeJson boolean indicates to include the json field in the response or not
+     * @param store the settings store
+     * @param writeBackStore the store that receives patched and migrated JSON
+     * @param settingNames the vsdk_setting__c record names
      *
-     * @return the user-defined model representation of the settings
+     * @return JSON by record name; names that were not found are absent
      */
-    private <U extends UserDefinedModel> QueryResponse getLocalSettingResponse(Class<U> settingsClass, boolean includeJson) {
-        StringBuilder query = new StringBuilder();
-        query.append("SELECT " + OBJECT_FIELD_ID);
-        if (includeJson) {
-            query.append(", LONGTEXT(" + OBJECT_FIELD_JSON + ")");
+    private <U extends UserDefinedModel> Map<String, String> readSettings(Class<U> settingsClass, SettingStore store,
+                                                                         SettingStore writeBackStore, List<String> settingNames) {
+        SettingSchema schema = SettingSchema.forClass(settingsClass);
+        Map<String, SettingSchema> schemaByName = VaultCollections.newMap();
+        for (String settingName : settingNames) {
+            schemaByName.put(settingName, schema);
         }
-        query.append(" FROM " + OBJECT_SDK_SETTING);
-        query.append(" WHERE " + OBJECT_FIELD_NAME + " = '");
-        query.append(getSettingName(settingsClass));
-        query.append("'");
+        return readSettings(store, writeBackStore, settingNames, schemaByName);
+    }
+
+    /**
+     * Reads settings of several classes through the given store in one read
+     *
+     * @param store the settings store
+     * @param writeBackStore the store that receives patched and migrated JSON
+     * @param settingNames the vsdk_setting__c record names
+     * @param schemaByName the schema of each setting
+     *
+     * @return JSON by record name; names that were not found are absent
+     */
+    private Map<String, String> readSettings(SettingStore store, SettingStore writeBackStore, List<String> settingNames,
+                                             Map<String, SettingSchema> schemaByName) {
+        // Settings and their delta records are read together
+        List<String> recordNames = VaultCollections.newList();
+        for (String settingName : settingNames) {
+            recordNames.add(settingName);
+            recordNames.add(SettingDescriptor.getDeltaName(settingName));
+        }
+        Map<String, String> storedJsonByName = store.read(recordNames);
+
+        Map<String, String> jsonByName = VaultCollections.newMap();
+        Map<String, String> writeBackJsonByName = VaultCollections.newMap();
+        for (String settingName : settingNames) {
+            String json = storedJsonByName.get(settingName);
+            boolean patched = false;
+
+            String delta = storedJsonByName.get(SettingDescriptor.getDeltaName(settingName));
+            if (delta != null && !SettingJson.isEmptyObject(delta)) {
+                json = SettingJson.applyPatch(json == null ? SettingJson.EMPTY_OBJECT : json, delta);
+                writeBackJsonByName.put(SettingDescriptor.getDeltaName(settingName), SettingJson.EMPTY_OBJECT);
+                patched = true;
+            }
+
+            if (json == null) {
+                continue;
+            }
+
+            // Scoped layers only hold overrides, so they are upgraded without the migrations that fill in defaults
+            String upgradedJson = schemaByName.get(settingName).upgrade(json, !SettingScope.isScopedRecordName(settingName));
+            if (patched || upgradedJson != json) {
+                writeBackJsonByName.put(settingName, upgradedJson);
+            }
+            jsonByName.put(settingName, upgradedJson);
+        }
+
+        if (!writeBackJsonByName.isEmpty()) {
+            writeBackStore.write(writeBackJsonByName);
+        }
+
+        return jsonByName;
+    }
+
+    /**
+     * Writes a single setting through the given store
+     *
+     * @param store the settings store
+     * @param settingName the vsdk_setting__c record name
+     * @param json the settings JSON
+     */
+    private void writeSetting(SettingStore store, String settingName, String json) {
+        Map<String, String> jsonByName = VaultCollections.newMap();
+        jsonByName.put(settingName, json);
+        store.write(jsonByName);
+    }
 
-        QueryService queryService = ServiceLocator.locate(QueryService.class);
-        return queryService.query(query.toString());
+    /**
+     * Gets the bundled defaults of a setting, upgraded to the current schema version
+     *
+     * @param settingsClass the interface reference
+     * @param settingName the canonical setting name
+     *
+     * @return the default JSON, or null if the setting has no defaults
+     */
+    private <U extends UserDefinedModel> String getDefaultJson(Class<U> settingsClass, String settingName) {
+        String json = SettingDefaults.getJson(settingName);
+        return json == null ? null : SettingSchema.forClass(settingsClass).upgrade(json);
     }
 
     /**
@@ -73,106 +135,134 @@ public class CustomSettingServiceImpl implements CustomSettingService {
      * @return the user-defined model representation of the settings
      */
     public <U extends UserDefinedModel> U getLocalSettings(Class<U> settingsClass) {
-        JsonService jsonService = ServiceLocator.locate(JsonService.class);
-
-        List<U> results = VaultCollections.asList();
-
-        // Use the query response from the getLocalSettingsResponse method to get the json from the records
+        // The json is read through the request cache and then the local vault
         // The json is then converted to the ExampleSettings User-Defined Model
-        // Then the ExampleSettings UDM is added to the results list
-        QueryResponse queryResponse = getLocalSettingResponse(settingsClass, true);
-        queryResponse.streamResults().forEach(queryResult -> {
-            String json = queryResult.getValue(OBJECT_FIELD_JSON, ValueType.STRING);
+        String settingName = getSettingName(settingsClass);
+        SettingSpan span = SettingTracer.startSpan("getLocalSettings", SettingTracer.CATEGORY_SETTINGS)
+                .setAttribute("setting_name", settingName);
+        try {
+            String json = readSettings(settingsClass, SettingStores.local(), SettingStores.local(),
+                    VaultCollections.asList(settingName)).get(settingName);
             if (json != null) {
-                U settingModel = jsonService.convertToUserDefinedModel(json, settingsClass);
-                results.add(settingModel);
+                return decode(json, settingsClass);
             }
-        });
 
-        // This source code project only expects one example settings record in the local vault
-        // Therefore only the first ExampleSettings UDM from the results list is returned
-        if (!results.isEmpty()) {
-            return results.get(0);
+            // Settings were not found, the bundled defaults are served without being saved
+            json = getDefaultJson(settingsClass, settingName);
+            span.setAttribute("defaults", String.valueOf(json != null));
+            return json == null ? null : decode(json, settingsClass);
+        } finally {
+            span.end();
         }
-
-        // Settings were not found
-        return null;
     }
 
-
     /**
-     * Query the remote vault and return only the JSON as plaintext
+     * Retrieves remote settings based on the interface name and connection
      *
      * @param settingsClass the interface reference
      * @param connectionName name of the remote connection
      *
      * @return the user-defined model representation of the settings
      */
-    private <U extends UserDefinedModel> SettingRecordModel getRemoteSettingResponse(Class<U> settingsClass, String connectionName) {
-        // Get an instance of the HTTPService which is used to make HTTP calls
-        HttpService httpService = ServiceLocator.locate(HttpService.class);
-        LogService logService = ServiceLocator.locate(LogService.class);
-
-        List<SettingRecordModel> results = VaultCollections.newList();
-
-        StringBuilder query = new StringBuilder();
-        query.append("SELECT LONGTEXT(" + OBJECT_FIELD_JSON + ")");
-        query.append(" FROM " + OBJECT_SDK_SETTING);
-        query.append(" WHERE " + OBJECT_FIELD_NAME + " = '");
-        query.append(getSettingName(settingsClass));
-        query.append("'");
-
-        // Make a VQL query against the remote vault
-        HttpRequest queryRequest = httpService.newHttpRequest(connectionName);
-        queryRequest.appendPath("/api/" + API_VERSION + "/query");
-        queryRequest.setBodyParam("q", query.toString());
-        // Send the HTTP request and convert the response to SettingQueryResponseModel User-defined Model
-        httpService.send(queryRequest, SettingQueryResponseModel.class)
-                .onError(response -> {
-                    // If an error occurs, log the error using the LogService
-                    logService.error(response.getMessage());
-                })
-                .onSuccess(response -> {
-                    // Get the response UDM
-                    SettingQueryResponseModel responseModel = response.getResponseBody();
-                    if (responseModel != null) {
-                        if (responseModel.getData() != null && !responseModel.getData().isEmpty()) {
-                            // Get the Settings model data and add it to the results list
-                            SettingRecordModel remoteSettingModel = responseModel.getData().get(0);
-                            results.add(remoteSettingModel);
-                        }
-                    }
-                })
-                .execute();
-
-        // This source code project only expects one example settings record in the remote vault
-        // Therefore only the first ExampleSettings UDM from the results list is returned
-        if (!results.isEmpty()) {
-            return results.get(0);
+    public <U extends UserDefinedModel> U getRemoteSettings(Class<U> settingsClass, String connectionName) {
+        // If the remote settings are found then convert them to the ExampleSettings class
+        // Migrated remote settings are only kept in the request cache, the remote vault is not rewritten on read
+        String settingName = getSettingName(settingsClass);
+        SettingSpan span = SettingTracer.startSpan("getRemoteSettings", SettingTracer.CATEGORY_SETTINGS)
+                .setAttribute("setting_name", settingName)
+                .setAttribute("connection_name", connectionName);
+        try {
+            String json = readSettings(settingsClass, SettingStores.remote(connectionName), SettingStores.remoteCache(connectionName),
+                    VaultCollections.asList(settingName)).get(settingName);
+            if (json != null) {
+                return decode(json, settingsClass);
+            }
+
+            return null;
+        } finally {
+            span.end();
         }
+    }
 
-        // Settings were not found
-        return null;
+    /**
+     * Retrieves remote settings of several classes in one read.
+     * Settings missing from the request cache and local mirror are fetched with a single VQL query
+     * (split into chunks only for long name lists).
+     *
+     * @param settingsClasses the interface references
+     * @param connectionName name of the remote connection
+     *
+     * @return the user-defined model of each class that was found
+     */
+    public Map<Class<? extends UserDefinedModel>, UserDefinedModel> getBulkRemoteSettings(List<Class<? extends UserDefinedModel>> settingsClasses,
+                                                                                         String connectionName) {
+        List<String> settingNames = VaultCollections.newList();
+        Map<String, SettingSchema> schemaByName = VaultCollections.newMap();
+        for (Class<? extends UserDefinedModel> settingsClass : settingsClasses) {
+            String settingName = getSettingName(settingsClass);
+            settingNames.add(settingName);
+            schemaByName.put(settingName, SettingSchema.forClass(settingsClass));
+        }
+
+        Map<String, String> jsonByName = readSettings(SettingStores.remote(connectionName), SettingStores.remoteCache(connectionName),
+                settingNames, schemaByName);
+
+        // Map every returned setting back to its class
+        Map<Class<? extends UserDefinedModel>, UserDefinedModel> results = VaultCollections.newMap();
+        for (Class<? extends UserDefinedModel> settingsClass : settingsClasses) {
+            String json = jsonByName.get(getSettingName(settingsClass));
+            if (json != null) {
+                results.put(settingsClass, decode(json, settingsClass));
+            }
+        }
+        return results;
     }
 
     /**
-     * Retrieves remote settings based on the interface name and connection
+     * Converts settings JSON to a model, once per distinct payload and class in the request.
+     * The returned model may be shared, so it must be treated as read-only.
      *
+     * @param json settings JSON
      * @param settingsClass the interface reference
-     * @param connectionName name of the remote connection
      *
      * @return the user-defined model representation of the settings
      */
-    public <U extends UserDefinedModel> U getRemoteSettings(Class<U> settingsClass, String connectionName) {
-        JsonService jsonService = ServiceLocator.locate(JsonService.class);
-
-        // If the Remote Settings UDM is not null then convert it to the ExampleSettings class
-        SettingRecordModel remoteSettingModel = getRemoteSettingResponse(settingsClass, connectionName);
-        if (remoteSettingModel != null) {
-            return jsonService.convertToUserDefinedModel(remoteSettingModel.getJson(), settingsClass);
+    private <U extends UserDefinedModel> U decode(String json, Class<U> settingsClass) {
+        String hash = SettingHash.of(json);
+        SettingRequestCache cache = SettingRequestCache.get();
+        U model = cache.getDecodedModel(hash, settingsClass);
+        if (model == null) {
+            SettingSpan span = SettingTracer.startSpan("decode", SettingTracer.CATEGORY_JSON)
+                    .setAttribute("payload_size", json.length());
+            try {
+                JsonService jsonService = ServiceLocator.locate(JsonService.class);
+                model = jsonService.convertToUserDefinedModel(json, settingsClass);
+                cache.putDecodedModel(hash, settingsClass, model);
+            } finally {
+                span.end();
+            }
         }
+        return model;
+    }
 
-        return null;
+    /**
+     * Converts a model to settings JSON stamped with the current schema version
+     *
+     * @param settingsModel model instance
+     * @param settingsClass the interface reference
+     *
+     * @return settings JSON
+     */
+    private <U extends UserDefinedModel> String encode(U settingsModel, Class<U> settingsClass) {
+        SettingSpan span = SettingTracer.startSpan("encode", SettingTracer.CATEGORY_JSON);
+        try {
+            JsonService jsonService = ServiceLocator.locate(JsonService.class);
+            String json = SettingSchema.forClass(settingsClass).stamp(jsonService.convertToString(settingsModel));
+            span.setAttribute("payload_size", json.length());
+            return json;
+        } finally {
+            span.end();
+        }
     }
 
     /**
@@ -183,7 +273,7 @@ public class CustomSettingServiceImpl implements CustomSettingService {
      * @return fully qualified interface name
      */
     private <U extends UserDefinedModel> String getSettingName(Class<U> settingsClass) {
-        return settingsClass.toString().replace("interface ", "");
+        return SettingRegistry.get().describe(settingsClass).getSettingName();
     }
 
     /**
@@ -194,35 +284,103 @@ public class CustomSettingServiceImpl implements CustomSettingService {
      *
      */
     public <U extends UserDefinedModel> void saveLocalSettings(U settingsModel, Class<U> settingsClass) {
-        JsonService jsonService = ServiceLocator.locate(JsonService.class);
-        RecordService recordService = ServiceLocator.locate(RecordService.class);
-
-        // Convert the UDM into JSON
-        String json = jsonService.convertToString(settingsModel);
-
-        List<Record> settingRecords = VaultCollections.newList();
-
-        // Find the existing setting record
-        QueryResponse queryResponse = getLocalSettingResponse(settingsClass, false);
-        queryResponse.streamResults().forEach(queryResult -> {
-            String id = queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING);
-            Record record = recordService.newRecordWithId(OBJECT_SDK_SETTING, id);
-            record.setValue(OBJECT_FIELD_JSON, json);
-            settingRecords.add(record);
-        });
-
-        // If the settings aren't found then create a new record
-        if (settingRecords.isEmpty()) {
-            Record record = recordService.newRecord(OBJECT_SDK_SETTING);
-            record.setValue(OBJECT_FIELD_NAME, getSettingName(settingsClass));
-            record.setValue(OBJECT_FIELD_JSON, json);
-            settingRecords.add(record);
+        saveScopedSettings(settingsModel, settingsClass, SettingScope.global());
+    }
+
+    /**
+     * Saves local settings for a single scope based on the interface name
+     *
+     * @param settingsModel model instance
+     * @param settingsClass the interface reference
+     * @param scope the settings layer to save
+     *
+     */
+    public <U extends UserDefinedModel> void saveScopedSettings(U settingsModel, Class<U> settingsClass, SettingScope scope) {
+        String settingName = scope.getSettingName(getSettingName(settingsClass));
+        SettingSpan span = SettingTracer.startSpan("saveScopedSettings", SettingTracer.CATEGORY_SETTINGS)
+                .setAttribute("setting_name", settingName);
+        try {
+            // Convert the UDM into JSON stamped with the schema version and write it through to the local vault
+            // Any pending delta for the layer is cleared, as the full document replaces it
+            // Logged operations read in this request are deleted with the write; operations logged since then still apply
+            String json = encode(settingsModel, settingsClass);
+            Map<String, String> jsonByName = VaultCollections.newMap();
+            jsonByName.put(settingName, json);
+            jsonByName.put(SettingDescriptor.getDeltaName(settingName), SettingJson.EMPTY_OBJECT);
+            SettingStores.local().write(jsonByName);
+
+            // Resolved settings in this request may include the saved layer
+            SettingRequestCache.get().clearModels();
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Retrieves local settings resolved across scopes.
+     * All layers are fetched in one query and merged once; the effective model is cached for the request.
+     *
+     * @param settingsClass the interface reference
+     * @param objectName object for the object-level layer (optional)
+     * @param connectionName connection for the connection-level layer (optional)
+     *
+     * @return the user-defined model representation of the effective settings
+     */
+    public <U extends UserDefinedModel> U getScopedSettings(Class<U> settingsClass, String objectName, String connectionName) {
+        String settingName = getSettingName(settingsClass);
+
+        // Layer names from lowest to highest precedence
+        List<String> layerNames = VaultCollections.newList();
+        layerNames.add(SettingScope.global().getSettingName(settingName));
+        if (objectName != null) {
+            layerNames.add(SettingScope.forObject(objectName).getSettingName(settingName));
+        }
+        if (connectionName != null) {
+            layerNames.add(SettingScope.forConnection(connectionName).getSettingName(settingName));
+        }
+
+        String cacheKey = layerNames.toString();
+        SettingRequestCache cache = SettingRequestCache.get();
+        U cachedModel = cache.getModel(cacheKey, settingsClass);
+        if (cachedModel != null) {
+            return cachedModel;
         }
 
-        // Save the settings record using the RecordService
-        recordService.batchSaveRecords(settingRecords)
-                .rollbackOnErrors()
-                .execute();
+        SettingSpan span = SettingTracer.startSpan("getScopedSettings", SettingTracer.CATEGORY_SETTINGS)
+                .setAttribute("setting_name", settingName)
+                .setAttribute("object_name", objectName)
+                .setAttribute("connection_name", connectionName);
+        try {
+            Map<String, String> jsonByName = readSettings(settingsClass, SettingStores.local(), SettingStores.local(), layerNames);
+            // The bundled defaults stand in for the global layer until it is saved
+            String globalName = layerNames.get(0);
+            if (!jsonByName.containsKey(globalName)) {
+                String defaultJson = getDefaultJson(settingsClass, settingName);
+                if (defaultJson != null) {
+                    jsonByName.put(globalName, defaultJson);
+                }
+            }
+
+            List<String> layers = VaultCollections.newList();
+            for (String layerName : layerNames) {
+                String json = jsonByName.get(layerName);
+                if (json != null) {
+                    layers.add(json);
+                }
+            }
+            span.setAttribute("layers", layers.size());
+
+            // Settings were not found
+            if (layers.isEmpty()) {
+                return null;
+            }
+
+            U effectiveModel = decode(SettingJson.overlay(layers), settingsClass);
+            cache.putModel(cacheKey, effectiveModel);
+            return effectiveModel;
+        } finally {
+            span.end();
+        }
     }
 
     /**
@@ -234,34 +392,266 @@ public class CustomSettingServiceImpl implements CustomSettingService {
      *
      */
     public <U extends UserDefinedModel> void saveRemoteSettings(U settingsModel, Class<U> settingsClass, String connectionName) {
-        HttpService httpService = ServiceLocator.locate(HttpService.class);
+        String settingName = getSettingName(settingsClass);
+        SettingSpan span = SettingTracer.startSpan("saveRemoteSettings", SettingTracer.CATEGORY_SETTINGS)
+                .setAttribute("setting_name", settingName)
+                .setAttribute("connection_name", connectionName);
+        try {
+            // Convert the UDM into JSON using the convertToString method and stamp the schema version
+            // Then upsert it by name in the remote vault, clearing any pending delta
+            String json = encode(settingsModel, settingsClass);
+            Map<String, String> jsonByName = VaultCollections.newMap();
+            jsonByName.put(settingName, json);
+            jsonByName.put(SettingDescriptor.getDeltaName(settingName), SettingJson.EMPTY_OBJECT);
+            SettingStores.remote(connectionName).write(jsonByName);
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Saves remote settings to many remote vaults.
+     * The model is serialized and the records built once, then upserted to each connection;
+     * the empty delta is only sent to vaults that hold a delta record for the setting.
+     * The local mirror and request cache are updated for the connections that succeeded.
+     *
+     * @param settingsModel model instance
+     * @param settingsClass the interface reference
+     * @param connectionNames names of the remote connections
+     *
+     * @return outcome by connection name
+     */
+    public <U extends UserDefinedModel> Map<String, RemoteSaveOutcome> broadcastRemoteSettings(U settingsModel, Class<U> settingsClass,
+                                                                                                 List<String> connectionNames) {
+        String settingName = getSettingName(settingsClass);
+        String json = encode(settingsModel, settingsClass);
+        Map<String, String> jsonByName = VaultCollections.newMap();
+        jsonByName.put(settingName, json);
+        jsonByName.put(SettingDescriptor.getDeltaName(settingName), SettingJson.EMPTY_OBJECT);
+        List<SettingRecordModel> remoteSettingModels = RemoteSettingStore.toRecordModels(jsonByName);
+
+        Map<String, RemoteSaveOutcome> outcomes = VaultCollections.newMap();
+        for (String connectionName : connectionNames) {
+            RemoteSettingStore remoteStore = new RemoteSettingStore(connectionName);
+            RemoteSaveOutcome outcome = remoteStore.upsert(remoteStore.withoutNewEmptyRecords(remoteSettingModels));
+            outcomes.put(connectionName, outcome);
+            if (outcome.isSuccess()) {
+                new MirrorSettingStore(connectionName).write(jsonByName);
+                SettingStores.remoteCache(connectionName).write(jsonByName);
+            }
+        }
+
+        return outcomes;
+    }
+
+    /**
+     * Saves remote settings as a property-level patch against the last-synced version.
+     * The last-synced version is the local mirror of the remote settings; only the changed properties
+     * are sent, to the setting's delta record, and the remote vault applies them when it next reads the setting.
+     * Falls back to a full save when there is no mirror or the patch is not much smaller than the document.
+     *
+     * @param settingsModel model instance
+     * @param settingsClass the interface reference
+     * @param connectionName name of the remote connection
+     *
+     */
+    public <U extends UserDefinedModel> void saveRemoteSettingsDelta(U settingsModel, Class<U> settingsClass, String connectionName) {
+        String settingName = getSettingName(settingsClass);
+        String json = encode(settingsModel, settingsClass);
+        String syncedJson = new MirrorSettingStore(connectionName).read(VaultCollections.asList(settingName)).get(settingName);
+
+        if (syncedJson != null) {
+            // The patch is cumulative against the synced base, so it replaces any earlier pending patch
+            String patch = SettingJson.diff(syncedJson, json);
+            if (patch.length() * 2 < json.length()) {
+                writeSetting(SettingStores.remote(connectionName), SettingDescriptor.getDeltaName(settingName), patch);
+                return;
+            }
+        }
+
+        saveRemoteSettings(settingsModel, settingsClass, connectionName);
+    }
+
+    /**
+     * Refreshes the local copies of remote settings for a connection.
+     * All settings are fetched from the remote vault in one query and stored with their fetch time,
+     * so later reads of the remote settings are served locally.
+     *
+     * @param settingsClasses the interface references
+     * @param connectionName name of the remote connection
+     *
+     * @return false if the remote vault could not be read; the local copies are then left as they were
+     */
+    public boolean refreshRemoteSettings(List<Class<? extends UserDefinedModel>> settingsClasses, String connectionName) {
+        List<String> settingNames = VaultCollections.newList();
+        for (Class<? extends UserDefinedModel> settingsClass : settingsClasses) {
+            settingNames.add(getSettingName(settingsClass));
+            settingNames.add(SettingDescriptor.getDeltaName(getSettingName(settingsClass)));
+        }
+
+        // Read straight from the remote vault, bypassing the cache and mirror tiers
+        // A setting without a delta record has no pending patch, which the mirror keeps as an empty delta
+        Map<String, String> jsonByName = new RemoteSettingStore(connectionName).tryRead(settingNames);
+        if (jsonByName == null) {
+            return false;
+        }
+        for (Class<? extends UserDefinedModel> settingsClass : settingsClasses) {
+            String settingName = getSettingName(settingsClass);
+            String deltaName = SettingDescriptor.getDeltaName(settingName);
+            if (jsonByName.containsKey(settingName) && !jsonByName.containsKey(deltaName)) {
+                jsonByName.put(deltaName, SettingJson.EMPTY_OBJECT);
+            }
+        }
+        new MirrorSettingStore(connectionName).write(jsonByName);
+        SettingStores.remoteCache(connectionName).write(jsonByName);
+        return true;
+    }
+
+    /**
+     * Retrieves local settings and the version__c of their record, bypassing the request cache
+     *
+     * @param settingsClass the interface reference
+     *
+     * @return the settings (the bundled defaults, or null, if not found) and the record version (0 if not found)
+     */
+    public <U extends UserDefinedModel> VersionedSetting<U> getVersionedLocalSettings(Class<U> settingsClass) {
+        // Fold any pending delta into the record first, so the version covers the whole document
+        // Logged operations are folded on by readVersioned
+        String settingName = getSettingName(settingsClass);
+        readSettings(settingsClass, new LocalSettingStore(), new LocalSettingStore(), VaultCollections.asList(settingName));
+
+        VersionedSetting<String> versionedJson = new LocalSettingStore().readVersioned(settingName);
+        String storedJson = versionedJson.getValue();
+        if (storedJson == null) {
+            // Version 0 with the defaults, so the first compare-and-set save creates the record
+            storedJson = getDefaultJson(settingsClass, settingName);
+        }
+        if (storedJson == null) {
+            return new VersionedSetting<>(null, versionedJson.getVersion());
+        }
+
         JsonService jsonService = ServiceLocator.locate(JsonService.class);
-        LogService logService = ServiceLocator.locate(LogService.class);
-        UserDefinedModelService modelService = ServiceLocator.locate(UserDefinedModelService.class);
+        String json = SettingSchema.forClass(settingsClass).upgrade(storedJson);
+        return new VersionedSetting<>(jsonService.convertToUserDefinedModel(json, settingsClass), versionedJson.getVersion());
+    }
 
-        // Convert the UDM into JSON using the convertToString method
-        // Then use the UserDefinedModelService to create a SettingRecordModel and set the name and the json in it
+    /**
+     * Saves local settings only if the record version has not moved since it was read.
+     * The next version is claimed with a unique record name before the save, see LocalSettingStore.compareAndSet,
+     * so of several saves that read the same version exactly one succeeds and the others get a conflict.
+     *
+     * @param settingsModel model instance
+     * @param settingsClass the interface reference
+     * @param expectedVersion the version returned by getVersionedLocalSettings
+     *
+     * @return saved with the new version, or conflict with the current version
+     */
+    public <U extends UserDefinedModel> SettingSaveResult compareAndSaveLocalSettings(U settingsModel, Class<U> settingsClass, long expectedVersion) {
         String settingName = getSettingName(settingsClass);
-        String json = jsonService.convertToString(settingsModel);
-        SettingRecordModel remoteSettingModel = modelService.newUserDefinedModel(SettingRecordModel.class);
-        remoteSettingModel.setName(settingName);
-        remoteSettingModel.setJson(json);
-
-        // Using the HTTPService, create a record in the remote vault for the settings
-        HttpRequest updateRequest = httpService.newHttpRequest(connectionName);
-        updateRequest.setQuerystringParam(QUERY_ID_PARAM, OBJECT_FIELD_NAME);
-        updateRequest.setMethod(HttpMethod.POST);
-        updateRequest.appendPath("/api/" + API_VERSION + "/vobjects/" + OBJECT_SDK_SETTING);
-        updateRequest.setBody(VaultCollections.asList(remoteSettingModel));
-        httpService.send(updateRequest, HttpResponseBodyValueType.JSONDATA)
-                .onError(response -> {
-                    // Log error message using the logService
-                    logService.error(response.getMessage());
-                })
-                .onSuccess(response -> {
-                    // Log response body json using the logService
-                    logService.info(response.getResponseBody().getJsonObject().asString());
-                })
-                .execute();
+        String json = encode(settingsModel, settingsClass);
+        SettingSaveResult result = new LocalSettingStore().compareAndSet(settingName, json, expectedVersion);
+
+        if (result.isSaved()) {
+            // The store deleted the logged operations the document was read with
+            writeSetting(SettingStores.localCache(), settingName, json);
+            SettingRequestCache.get().clearModels();
+        }
+        return result;
+    }
+
+    /**
+     * Reads, modifies and compare-and-set saves local settings.
+     * On a conflict the settings are read again and the updater is re-applied, up to maxAttempts times.
+     *
+     * @param settingsClass the interface reference
+     * @param updater applies the change to the current settings
+     * @param maxAttempts maximum number of read-modify-write attempts
+     *
+     * @return the result of the last attempt
+     */
+    public <U extends UserDefinedModel> SettingSaveResult updateLocalSettings(Class<U> settingsClass, SettingUpdater<U> updater, int maxAttempts) {
+        SettingSaveResult result = SettingSaveResult.conflict(0);
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            VersionedSetting<U> current = getVersionedLocalSettings(settingsClass);
+            result = compareAndSaveLocalSettings(updater.update(current.getValue()), settingsClass, current.getVersion());
+            if (result.isSaved()) {
+                return result;
+            }
+        }
+
+        ServiceLocator.locate(LogService.class).warn("Settings update for {} conflicted {} times", getSettingName(settingsClass), maxAttempts);
+        return result;
+    }
+
+    /**
+     * Appends a small change to local settings as a single insert.
+     * Once the log of the setting reaches the compaction threshold, the operations are folded into the document.
+     *
+     * @param settingsClass the interface reference
+     * @param scope the settings layer to change
+     * @param operation the change
+     */
+    public <U extends UserDefinedModel> void appendSettingOperation(Class<U> settingsClass, SettingScope scope, SettingOperation operation) {
+        String settingName = scope.getSettingName(getSettingName(settingsClass));
+        long loggedOperations = new SettingOperationLog().append(settingName, operation);
+        SettingStores.localCache().remove(VaultCollections.asList(settingName));
+        SettingRequestCache.get().clearModels();
+
+        if (loggedOperations >= SettingOperationLog.COMPACTION_THRESHOLD) {
+            compactOperations(settingsClass, settingName);
+        }
+    }
+
+    /**
+     * Folds the logged operations of a setting into its document.
+     * The local store reads the document with its operations folded on and deletes only those operation records
+     * when the document is written, so operations appended in the meantime are kept.
+     *
+     * @param settingsClass the interface reference
+     * @param settingName the vsdk_setting__c record name
+     */
+    private <U extends UserDefinedModel> void compactOperations(Class<U> settingsClass, String settingName) {
+        String json = readSettings(settingsClass, SettingStores.local(), SettingStores.local(),
+                VaultCollections.asList(settingName)).get(settingName);
+        if (json == null) {
+            return;
+        }
+
+        Map<String, String> jsonByName = VaultCollections.newMap();
+        jsonByName.put(settingName, SettingSchema.forClass(settingsClass).stamp(json));
+        jsonByName.put(SettingDescriptor.getDeltaName(settingName), SettingJson.EMPTY_OBJECT);
+        SettingStores.local().write(jsonByName);
+    }
+
+    /**
+     * Compares local settings with the settings of each remote vault by content hash only.
+     * Only name__v and json_hash__c are read, so the cost does not depend on the size of the settings.
+     * Records saved before hashes were stored have no hash and are always reported.
+     *
+     * @param connectionNames names of the remote connections
+     *
+     * @return names of the settings that differ or exist on one side only, by connection name
+     */
+    public Map<String, Set<String>> findDivergentSettings(List<String> connectionNames) {
+        Map<String, String> localHashes = new LocalSettingStore().readHashes();
+
+        Map<String, Set<String>> results = VaultCollections.newMap();
+        for (String connectionName : connectionNames) {
+            Map<String, String> remoteHashes = new RemoteSettingStore(connectionName).readHashes();
+            Set<String> divergentNames = VaultCollections.newSet();
+            for (Map.Entry<String, String> entry : localHashes.entrySet()) {
+                String localHash = entry.getValue();
+                if (localHash == null || !localHash.equals(remoteHashes.get(entry.getKey()))) {
+                    divergentNames.add(entry.getKey());
+                }
+            }
+            for (String remoteName : remoteHashes.keySet()) {
+                if (!localHashes.containsKey(remoteName)) {
+                    divergentNames.add(remoteName);
+                }
+            }
+            results.put(connectionName, divergentNames);
+        }
+        return results;
     }
 }
\ No newline at end of file
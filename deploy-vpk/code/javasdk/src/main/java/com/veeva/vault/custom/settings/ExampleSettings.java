@@ -37,4 +37,20 @@ public interface ExampleSettings extends UserDefinedModel {
 	@UserDefinedProperty(name = "status_types")
 	List<String> getStatusTypes();
 	void setStatusTypes(List<String> statusTypes);
+
+	@UserDefinedProperty(name = "min_batch_size")
+	BigDecimal getMinBatchSize();
+	void setMinBatchSize(BigDecimal minBatchSize);
+
+	@UserDefinedProperty(name = "target_batch_millis")
+	BigDecimal getTargetBatchMillis();
+	void setTargetBatchMillis(BigDecimal targetBatchMillis);
+
+	@UserDefinedProperty(name = "learned_batch_size")
+	BigDecimal getLearnedBatchSize();
+	void setLearnedBatchSize(BigDecimal learnedBatchSize);
+
+	@UserDefinedProperty(name = "trace_min_millis")
+	BigDecimal getTraceMinMillis();
+	void setTraceMinMillis(BigDecimal traceMinMillis);
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	ExampleSettingsSnapshot
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The snapshot is an immutable, typed view of an
+ * 				ExampleSettings model that is built once per load
+ * 				and read cheaply by per-record code.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Frozen view of ExampleSettings.
+ * The batch size is held as an int and the status types as a hash set,
+ * so per-record reads never convert BigDecimals or scan lists.
+ * The status type set is never exposed, so no defensive copies are needed.
+ */
+@UserDefinedClassInfo
+public final class ExampleSettingsSnapshot {
+
+	private final int batchSize;
+	private final Set<String> statusTypes;
+
+	private ExampleSettingsSnapshot(int batchSize, Set<String> statusTypes) {
+		this.batchSize = batchSize;
+		this.statusTypes = statusTypes;
+	}
+
+	/**
+	 * Builds a snapshot from a loaded settings model
+	 *
+	 * @param settings the loaded settings model (may be null)
+	 * @param defaultBatchSize batch size used when the model has none
+	 *
+	 * @return ExampleSettingsSnapshot
+	 */
+	public static ExampleSettingsSnapshot of(ExampleSettings settings, int defaultBatchSize) {
+		int batchSize = defaultBatchSize;
+		Set<String> statusTypes = VaultCollections.newSet();
+
+		if (settings != null) {
+			BigDecimal configuredBatchSize = settings.getBatchSize();
+			if (configuredBatchSize != null) {
+				batchSize = configuredBatchSize.intValue();
+			}
+
+			List<String> configuredStatusTypes = settings.getStatusTypes();
+			if (configuredStatusTypes != null) {
+				statusTypes.addAll(configuredStatusTypes);
+			}
+		}
+
+		return new ExampleSettingsSnapshot(batchSize, statusTypes);
+	}
+
+	/**
+	 * @return the configured batch size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * O(1) membership check against the configured status types
+	 *
+	 * @param statusType status type name, e.g. pending__c
+	 *
+	 * @return true if the status type is configured
+	 */
+	public boolean hasStatusType(String statusType) {
+		return statusTypes.contains(statusType);
+	}
+
+	/**
+	 * @return the number of configured status types
+	 */
+	public int getStatusTypeCount() {
+		return statusTypes.size();
+	}
+}
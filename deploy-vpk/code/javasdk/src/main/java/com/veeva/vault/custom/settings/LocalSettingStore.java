@@ -0,0 +1,991 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	LocalSettingStore
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Settings store backed by vsdk_setting__c records in
+ * 				the local vault, using the QueryService and the
+ * 				RecordService.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.RollbackException;
+import com.veeva.vault.sdk.api.core.ServiceLocator;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.ValueType;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+import com.veeva.vault.sdk.api.data.Record;
+import com.veeva.vault.sdk.api.data.RecordService;
+import com.veeva.vault.sdk.api.query.QueryResponse;
+import com.veeva.vault.sdk.api.query.QueryResult;
+import com.veeva.vault.sdk.api.query.QueryService;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Local vault tier.
+ * Payloads of PAYLOAD_MIN_LENGTH characters or more are stored once, in a payload:<hash> record,
+ * and the setting records only hold the hash in json_hash__c. Smaller payloads are stored inline.
+ * Logged operations are read in the same query as their settings and folded onto them, see SettingOperationLog.
+ */
+@UserDefinedClassInfo
+public class LocalSettingStore implements SettingStore {
+
+	static final String OBJECT_SDK_SETTING = "vsdk_setting__c";
+	static final String OBJECT_FIELD_ID = "id";
+	static final String OBJECT_FIELD_JSON = "json__c";
+	static final String OBJECT_FIELD_NAME = "name__v";
+	static final String OBJECT_FIELD_VERSION = "version__c";
+	static final String OBJECT_FIELD_JSON_HASH = "json_hash__c";
+	static final String OBJECT_FIELD_MODIFIED_DATE = "modified_date__v";
+	static final String OBJECT_FIELD_CREATED_DATE = "created_date__v";
+	private static final String PAYLOAD_RECORD_PREFIX = "payload:";
+	private static final String VERSION_CLAIM_SEPARATOR = "~v";
+	private static final int PAYLOAD_MIN_LENGTH = 2000;
+	// Records younger than this may belong to a save that is still running, so cleanups leave them alone
+	private static final long CLEANUP_GRACE_MINUTES = 60;
+	private static final String ERROR_PAYLOAD_SAVE_FAILED = "SETTING_PAYLOAD_SAVE_FAILED";
+
+	/**
+	 * Maps a setting name to the vsdk_setting__c record name that stores it
+	 *
+	 * @param settingName the setting name
+	 *
+	 * @return the record name
+	 */
+	protected String toRecordName(String settingName) {
+		return settingName;
+	}
+
+	/**
+	 * Appends additional read criteria to the WHERE clause
+	 *
+	 * @param query the query being built
+	 */
+	protected void appendReadCriteria(StringBuilder query) {
+	}
+
+	/**
+	 * Sets additional field values on a record before it is saved
+	 *
+	 * @param record the settings record
+	 */
+	protected void beforeSave(Record record) {
+	}
+
+	/**
+	 * @return true if records are created for empty patches, rather than only used to clear an existing record
+	 */
+	protected boolean createsEmptyRecords() {
+		return false;
+	}
+
+	/**
+	 * @return true if the logged operations of settings are read and folded onto them
+	 */
+	protected boolean readsOperations() {
+		return true;
+	}
+
+	/**
+	 * @param hash content hash
+	 *
+	 * @return the name of the record that holds the payload with the hash
+	 */
+	static String getPayloadRecordName(String hash) {
+		return PAYLOAD_RECORD_PREFIX + hash;
+	}
+
+	/**
+	 * @param recordName a vsdk_setting__c record name
+	 *
+	 * @return true if the record holds a shared payload rather than a setting
+	 */
+	public static boolean isPayloadRecordName(String recordName) {
+		return recordName.startsWith(PAYLOAD_RECORD_PREFIX);
+	}
+
+	/**
+	 * Queries the local vault using the QueryService
+	 * Returns the id, name__v and version__c, and optionally the JSON as plaintext
+	 * Records are returned newest first, so the first record of a name is the one to use
+	 *
+	 * @param recordNames the vsdk_setting__c record names
+	 * @param includeJson boolean indicates to include the json field in the response or not
+	 *
+	 * @return the query response
+	 */
+	private QueryResponse query(List<String> recordNames, boolean includeJson) {
+		return query(recordNames, includeJson, null);
+	}
+
+	/**
+	 * Queries settings and, with extraCriteria, records that belong to them, e.g. logged operations or version claims.
+	 * Records are then returned in name order, so operations come in the order they were appended in.
+	 *
+	 * @param recordNames the vsdk_setting__c record names
+	 * @param includeJson boolean indicates to include the json field in the response or not
+	 * @param extraCriteria criteria ORed with the record names, e.g. from SettingOperationLog.getCriteria, or null
+	 *
+	 * @return the query response
+	 */
+	private QueryResponse query(List<String> recordNames, boolean includeJson, String extraCriteria) {
+		String template = includeJson ? SettingQueries.JSON_QUERY : SettingQueries.ID_QUERY;
+		StringBuilder query = new StringBuilder(SettingRegistry.get().getQuery(template, recordNames));
+		if (includeJson) {
+			appendReadCriteria(query);
+		}
+		if (extraCriteria != null) {
+			query.append(" OR ").append(extraCriteria).append(SettingQueries.ORDER_BY_NAME_NEWEST);
+		} else {
+			query.append(SettingQueries.ORDER_BY_NEWEST);
+		}
+
+		SettingSpan span = SettingTracer.startSpan("LocalSettingStore.query", SettingTracer.CATEGORY_QUERY)
+				.setAttribute("record_names", recordNames.size())
+				.setAttribute("include_json", String.valueOf(includeJson))
+				.setAttribute("extra_criteria", String.valueOf(extraCriteria != null));
+		try {
+			QueryService queryService = ServiceLocator.locate(QueryService.class);
+			return queryService.query(query.toString());
+		} finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * Saves settings and payload records with a single batch save, rolling back on errors
+	 *
+	 * @param records the records to save
+	 */
+	private void saveRecords(List<Record> records) {
+		SettingSpan span = SettingTracer.startSpan("LocalSettingStore.save", SettingTracer.CATEGORY_SAVE)
+				.setAttribute("record_count", records.size());
+		try {
+			RecordService recordService = ServiceLocator.locate(RecordService.class);
+			recordService.batchSaveRecords(records)
+					.rollbackOnErrors()
+					.execute();
+		} finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * @return the version__c of a queried record, 0 if it has none
+	 */
+	private static long getVersion(QueryResult queryResult) {
+		BigDecimal version = queryResult.getValue(OBJECT_FIELD_VERSION, ValueType.NUMBER);
+		return version == null ? 0 : version.longValue();
+	}
+
+	/**
+	 * Sets the JSON and its hash on a settings record.
+	 * Large payloads are left out of the record and added to payloadByHash instead.
+	 */
+	private static void setJson(Record record, String json, Map<String, String> payloadByHash) {
+		String hash = SettingHash.of(json);
+		record.setValue(OBJECT_FIELD_JSON_HASH, hash);
+		if (json.length() < PAYLOAD_MIN_LENGTH) {
+			record.setValue(OBJECT_FIELD_JSON, json);
+		} else {
+			record.setValue(OBJECT_FIELD_JSON, null);
+			payloadByHash.put(hash, json);
+		}
+	}
+
+	/**
+	 * Saves the payload records that do not exist yet, before the settings records that point at them.
+	 * Payload records are never updated, as their name is derived from their content, so a concurrent save of the same
+	 * payload makes the insert fail on the unique name__v; the payload is then already stored and the insert is not needed.
+	 * Payloads left without settings, e.g. by a settings save that failed, are removed by deleteUnreferencedPayloads.
+	 *
+	 * @param payloadByHash payload JSON by content hash
+	 *
+	 * @return payload JSON by content hash of the payloads that already existed, see restoreSweptPayloads
+	 */
+	private Map<String, String> savePayloads(Map<String, String> payloadByHash) {
+		Map<String, String> existingPayloadByHash = VaultCollections.newMap();
+		if (payloadByHash.isEmpty()) {
+			return existingPayloadByHash;
+		}
+
+		List<String> payloadNames = VaultCollections.newList();
+		for (String hash : payloadByHash.keySet()) {
+			payloadNames.add(getPayloadRecordName(hash));
+		}
+		query(payloadNames, false).streamResults().forEach(queryResult -> {
+			String payloadName = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+			if (payloadNames.remove(payloadName)) {
+				String hash = payloadName.substring(PAYLOAD_RECORD_PREFIX.length());
+				existingPayloadByHash.put(hash, payloadByHash.get(hash));
+			}
+		});
+		if (payloadNames.isEmpty()) {
+			return existingPayloadByHash;
+		}
+
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		List<Record> payloadRecords = VaultCollections.newList();
+		for (String payloadName : payloadNames) {
+			String hash = payloadName.substring(PAYLOAD_RECORD_PREFIX.length());
+			Record record = recordService.newRecord(OBJECT_SDK_SETTING);
+			record.setValue(OBJECT_FIELD_NAME, payloadName);
+			record.setValue(OBJECT_FIELD_JSON, payloadByHash.get(hash));
+			record.setValue(OBJECT_FIELD_JSON_HASH, hash);
+			payloadRecords.add(record);
+		}
+
+		Map<String, String> errorByName = VaultCollections.newMap();
+		SettingSpan span = SettingTracer.startSpan("LocalSettingStore.savePayloads", SettingTracer.CATEGORY_SAVE)
+				.setAttribute("record_count", payloadRecords.size());
+		try {
+			recordService.batchSaveRecords(payloadRecords)
+					.onErrors(batchOperationErrors -> batchOperationErrors.forEach(error ->
+							errorByName.put(payloadNames.get(error.getInputPosition()), error.getError().getMessage())))
+					.execute();
+		} finally {
+			span.end();
+		}
+		if (errorByName.isEmpty()) {
+			return existingPayloadByHash;
+		}
+
+		// A payload that exists now was stored by a concurrent save of the same content; any other failure fails the save
+		List<String> failedNames = VaultCollections.newList();
+		failedNames.addAll(errorByName.keySet());
+		query(failedNames, false).streamResults().forEach(queryResult ->
+				errorByName.remove(queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING)));
+		if (!errorByName.isEmpty()) {
+			String payloadName = errorByName.keySet().iterator().next();
+			throw new RollbackException(ERROR_PAYLOAD_SAVE_FAILED, "Settings payload " + payloadName + " was not saved: " + errorByName.get(payloadName));
+		}
+		return existingPayloadByHash;
+	}
+
+	/**
+	 * Saves the payloads that a save reused again if deleteUnreferencedPayloads removed them before the settings records
+	 * pointing at them were saved. Reused payloads can be older than the cleanup grace period, so the sweep may see them
+	 * unreferenced until the settings records are saved; once they are, the sweep keeps them.
+	 *
+	 * @param existingPayloadByHash the payloads savePayloads found already stored
+	 */
+	private void restoreSweptPayloads(Map<String, String> existingPayloadByHash) {
+		if (!existingPayloadByHash.isEmpty()) {
+			savePayloads(existingPayloadByHash);
+		}
+	}
+
+	/**
+	 * Reads shared payloads by content hash.
+	 * Payload records are shared by all tiers, so no tier-specific read criteria apply.
+	 *
+	 * @param hashes content hashes
+	 *
+	 * @return payload JSON by content hash
+	 */
+	static Map<String, String> readPayloads(Collection<String> hashes) {
+		Map<String, String> payloadByHash = VaultCollections.newMap();
+		Set<String> payloadNames = VaultCollections.newSet();
+		for (String hash : hashes) {
+			payloadNames.add(getPayloadRecordName(hash));
+		}
+
+		List<String> recordNames = VaultCollections.newList();
+		recordNames.addAll(payloadNames);
+		SettingSpan span = SettingTracer.startSpan("LocalSettingStore.readPayloads", SettingTracer.CATEGORY_QUERY)
+				.setAttribute("record_names", recordNames.size());
+		try {
+			QueryService queryService = ServiceLocator.locate(QueryService.class);
+			queryService.query(SettingQueries.build(SettingQueries.JSON_QUERY, recordNames)).streamResults().forEach(queryResult -> {
+				String json = queryResult.getValue(OBJECT_FIELD_JSON, ValueType.STRING);
+				if (json != null) {
+					payloadByHash.put(queryResult.getValue(OBJECT_FIELD_JSON_HASH, ValueType.STRING), json);
+				}
+			});
+		} finally {
+			span.end();
+		}
+		return payloadByHash;
+	}
+
+	/**
+	 * Adds the shared payloads of records that only hold a hash to the results
+	 *
+	 * @param hashByName content hash by name, for records without inline JSON
+	 * @param results JSON by name
+	 */
+	private static void resolvePayloads(Map<String, String> hashByName, Map<String, String> results) {
+		if (hashByName.isEmpty()) {
+			return;
+		}
+
+		Map<String, String> payloadByHash = readPayloads(hashByName.values());
+		for (Map.Entry<String, String> entry : hashByName.entrySet()) {
+			String json = payloadByHash.get(entry.getValue());
+			if (json != null) {
+				results.put(entry.getKey(), json);
+			}
+		}
+	}
+
+	public Map<String, String> read(List<String> settingNames) {
+		Map<String, String> results = VaultCollections.newMap();
+		Map<String, String> hashBySettingName = VaultCollections.newMap();
+		Map<String, String> settingNameByRecordName = VaultCollections.newMap();
+		Map<String, String> settingNameByOperationKey = VaultCollections.newMap();
+		for (String settingName : settingNames) {
+			settingNameByRecordName.put(toRecordName(settingName), settingName);
+			settingNameByOperationKey.put(SettingOperationLog.getOperationKeyOf(toRecordName(settingName)), settingName);
+		}
+
+		// Only the newest record with JSON is kept for each name
+		// The stream stops as soon as every name is found, so older duplicates are never fetched, only when no operations
+		// are read: in MirrorSettingStore, or for delta names only. Operation rows are not counted in advance,
+		// so a read that includes them streams every row
+		List<String> recordNames = VaultCollections.newList();
+		recordNames.addAll(settingNameByRecordName.keySet());
+		String operationCriteria = readsOperations() ? SettingOperationLog.getCriteria(recordNames) : null;
+		Map<String, List<SettingOperation>> operationsBySettingName = VaultCollections.newMap();
+		Iterator<QueryResult> queryResults = query(recordNames, true, operationCriteria).streamResults().iterator();
+		while (queryResults.hasNext() && (operationCriteria != null || results.size() + hashBySettingName.size() < recordNames.size())) {
+			QueryResult queryResult = queryResults.next();
+			String recordName = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+			if (SettingOperationLog.isOperationRecordName(recordName)) {
+				addOperation(operationsBySettingName, settingNameByOperationKey.get(SettingOperationLog.getOperationKey(recordName)), queryResult);
+				continue;
+			}
+			String settingName = settingNameByRecordName.get(recordName);
+			if (settingName == null || results.containsKey(settingName) || hashBySettingName.containsKey(settingName)) {
+				continue;
+			}
+
+			String json = queryResult.getValue(OBJECT_FIELD_JSON, ValueType.STRING);
+			String hash = queryResult.getValue(OBJECT_FIELD_JSON_HASH, ValueType.STRING);
+			if (json != null) {
+				results.put(settingName, json);
+			} else if (hash != null) {
+				hashBySettingName.put(settingName, hash);
+			}
+		}
+
+		// Payloads shared by several records are read once
+		resolvePayloads(hashBySettingName, results);
+		foldOperations(operationsBySettingName, results);
+		return results;
+	}
+
+	/**
+	 * Adds a queried operation record to the operations of its setting
+	 *
+	 * @param operationsBySettingName operations by setting name, in append order
+	 * @param settingName the setting name, or null if the operation belongs to a setting that was not read
+	 * @param queryResult the operation record
+	 */
+	private static void addOperation(Map<String, List<SettingOperation>> operationsBySettingName, String settingName, QueryResult queryResult) {
+		if (settingName == null) {
+			return;
+		}
+		List<SettingOperation> operations = operationsBySettingName.get(settingName);
+		if (operations == null) {
+			operations = VaultCollections.newList();
+			operationsBySettingName.put(settingName, operations);
+		}
+		operations.add(SettingOperation.parse(queryResult.getValue(OBJECT_FIELD_JSON, ValueType.STRING),
+				queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING)));
+	}
+
+	/**
+	 * Folds operations onto the JSON of their settings.
+	 * The folded operations are kept for the request, so a write of the folded settings deletes exactly those records;
+	 * operations appended after the read are not folded into the written document and stay in the log.
+	 *
+	 * @param operationsBySettingName operations by setting name, in append order
+	 * @param results JSON by setting name, updated in place
+	 */
+	private static void foldOperations(Map<String, List<SettingOperation>> operationsBySettingName, Map<String, String> results) {
+		SettingRequestCache cache = SettingRequestCache.get();
+		for (Map.Entry<String, List<SettingOperation>> entry : operationsBySettingName.entrySet()) {
+			results.put(entry.getKey(), SettingOperationLog.fold(results.get(entry.getKey()), entry.getValue()));
+			cache.putFoldedOperations(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Deletes the operations that were folded into written settings
+	 *
+	 * @param settingNames the written setting names
+	 */
+	private void deleteFoldedOperations(Collection<String> settingNames) {
+		if (!readsOperations()) {
+			return;
+		}
+
+		SettingRequestCache cache = SettingRequestCache.get();
+		List<SettingOperation> operations = VaultCollections.newList();
+		for (String settingName : settingNames) {
+			List<SettingOperation> foldedOperations = cache.removeFoldedOperations(settingName);
+			if (foldedOperations != null) {
+				operations.addAll(foldedOperations);
+			}
+		}
+		if (!operations.isEmpty()) {
+			new SettingOperationLog().delete(operations);
+		}
+	}
+
+	public boolean write(Map<String, String> jsonByName) {
+		if (jsonByName.isEmpty()) {
+			return true;
+		}
+
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		List<Record> settingRecords = VaultCollections.newList();
+		Map<String, String> jsonByRecordName = VaultCollections.newMap();
+		for (Map.Entry<String, String> entry : jsonByName.entrySet()) {
+			jsonByRecordName.put(toRecordName(entry.getKey()), entry.getValue());
+		}
+		List<String> recordNames = VaultCollections.newList();
+		recordNames.addAll(jsonByRecordName.keySet());
+		Set<String> foundNames = VaultCollections.newSet();
+		Map<String, String> payloadByHash = VaultCollections.newMap();
+		List<String> claimIds = VaultCollections.newList();
+
+		// Find the existing setting records, and their version claims; only the newest record of a name is updated
+		// The write moves version__c past any claimed version, so the claims are deleted with it
+		query(recordNames, false, getVersionClaimCriteria(recordNames)).streamResults().forEach(queryResult -> {
+			String id = queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING);
+			String recordName = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+			if (isVersionClaimOf(recordName, jsonByRecordName.keySet())) {
+				claimIds.add(id);
+				return;
+			}
+			if (foundNames.contains(recordName) || !jsonByRecordName.containsKey(recordName)) {
+				return;
+			}
+			Record record = recordService.newRecordWithId(OBJECT_SDK_SETTING, id);
+			setJson(record, jsonByRecordName.get(recordName), payloadByHash);
+			record.setValue(OBJECT_FIELD_VERSION, new BigDecimal(getVersion(queryResult) + 1));
+			beforeSave(record);
+			settingRecords.add(record);
+			foundNames.add(recordName);
+		});
+
+		// If the settings aren't found then create new records
+		// Empty patches are only used to clear an existing record, so no record is created for them unless the tier keeps them
+		for (String recordName : recordNames) {
+			if (!foundNames.contains(recordName) && (createsEmptyRecords() || !SettingJson.isEmptyObject(jsonByRecordName.get(recordName)))) {
+				Record record = recordService.newRecord(OBJECT_SDK_SETTING);
+				record.setValue(OBJECT_FIELD_NAME, recordName);
+				setJson(record, jsonByRecordName.get(recordName), payloadByHash);
+				record.setValue(OBJECT_FIELD_VERSION, BigDecimal.ONE);
+				beforeSave(record);
+				settingRecords.add(record);
+			}
+		}
+
+		if (settingRecords.isEmpty()) {
+			return true;
+		}
+		Map<String, String> existingPayloadByHash = savePayloads(payloadByHash);
+
+		// Save the settings records using the RecordService
+		saveRecords(settingRecords);
+		restoreSweptPayloads(existingPayloadByHash);
+		deleteFoldedOperations(jsonByName.keySet());
+		if (!claimIds.isEmpty()) {
+			deleteRecordIds(claimIds);
+		}
+		return true;
+	}
+
+	/**
+	 * Streams every settings record in the local vault, one page at a time.
+	 * Only one page is held in memory, regardless of the number of records.
+	 *
+	 * The page size is read before each page, so it can be adjusted while streaming.
+	 *
+	 * @param pageSize supplies the maximum number of settings for the next page
+	 * @param pageConsumer receives JSON by record name for each page
+	 */
+	public void readAll(IntSupplier pageSize, Consumer<Map<String, String>> pageConsumer) {
+		QueryService queryService = ServiceLocator.locate(QueryService.class);
+		QueryResponse queryResponse = queryService.query("SELECT " + OBJECT_FIELD_NAME + ", " + OBJECT_FIELD_JSON_HASH
+				+ ", LONGTEXT(" + OBJECT_FIELD_JSON + ")"
+				+ " FROM " + OBJECT_SDK_SETTING);
+
+		// Payload records, version claims and logged operations are not settings; records that point at payloads are resolved per page
+		// Operations are left out rather than exported on their own, so pending operations must be compacted before a transfer
+		Map<String, String> page = VaultCollections.newMap();
+		Map<String, String> hashByName = VaultCollections.newMap();
+		Iterator<QueryResult> results = queryResponse.streamResults().iterator();
+		while (results.hasNext()) {
+			QueryResult queryResult = results.next();
+			String recordName = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+			if (isPayloadRecordName(recordName) || isVersionClaimRecordName(recordName)
+					|| SettingOperationLog.isOperationRecordName(recordName)) {
+				continue;
+			}
+
+			String json = queryResult.getValue(OBJECT_FIELD_JSON, ValueType.STRING);
+			String hash = queryResult.getValue(OBJECT_FIELD_JSON_HASH, ValueType.STRING);
+			if (json != null) {
+				page.put(recordName, json);
+			} else if (hash != null) {
+				hashByName.put(recordName, hash);
+			}
+
+			if (page.size() + hashByName.size() >= pageSize.getAsInt()) {
+				resolvePayloads(hashByName, page);
+				pageConsumer.accept(page);
+				page = VaultCollections.newMap();
+				hashByName = VaultCollections.newMap();
+			}
+		}
+
+		resolvePayloads(hashByName, page);
+		if (!page.isEmpty()) {
+			pageConsumer.accept(page);
+		}
+	}
+
+	/**
+	 * Deletes duplicate settings records, keeping the newest record of each name.
+	 * Records are streamed in name order, so only one delete batch is held in memory.
+	 *
+	 * @param batchSize maximum number of records per delete
+	 *
+	 * @return the number of deleted records
+	 */
+	public int deleteDuplicates(int batchSize) {
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		QueryService queryService = ServiceLocator.locate(QueryService.class);
+		QueryResponse queryResponse = queryService.query("SELECT " + OBJECT_FIELD_ID + ", " + OBJECT_FIELD_NAME
+				+ " FROM " + OBJECT_SDK_SETTING
+				+ " ORDER BY " + OBJECT_FIELD_NAME + " ASC, " + OBJECT_FIELD_MODIFIED_DATE + " DESC");
+
+		int deleted = 0;
+		String previousName = null;
+		List<Record> duplicates = VaultCollections.newList();
+		Iterator<QueryResult> results = queryResponse.streamResults().iterator();
+		while (results.hasNext()) {
+			QueryResult queryResult = results.next();
+			String recordName = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+			if (recordName.equals(previousName)) {
+				duplicates.add(recordService.newRecordWithId(OBJECT_SDK_SETTING, queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING)));
+			}
+			previousName = recordName;
+
+			if (duplicates.size() >= batchSize || (!results.hasNext() && !duplicates.isEmpty())) {
+				recordService.batchDeleteRecords(duplicates)
+						.rollbackOnErrors()
+						.execute();
+				deleted += duplicates.size();
+				duplicates = VaultCollections.newList();
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * Deletes version claims that no compare-and-set save can still hold: claims of another version than the current
+	 * version of their setting, e.g. left behind by a setting that was deleted and created again.
+	 * Claims younger than the cleanup grace period are kept, as they may belong to a save that is still running.
+	 *
+	 * @param batchSize maximum number of records per delete
+	 *
+	 * @return the number of deleted records
+	 */
+	public int deleteStaleVersionClaims(int batchSize) {
+		ZonedDateTime oldestKeptDate = ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(CLEANUP_GRACE_MINUTES);
+		Map<String, Long> versionByName = VaultCollections.newMap();
+		List<String> claimIds = VaultCollections.newList();
+		List<String> claimNames = VaultCollections.newList();
+		QueryService queryService = ServiceLocator.locate(QueryService.class);
+		queryService.query("SELECT " + OBJECT_FIELD_ID + ", " + OBJECT_FIELD_NAME + ", " + OBJECT_FIELD_VERSION + ", " + OBJECT_FIELD_CREATED_DATE
+				+ " FROM " + OBJECT_SDK_SETTING)
+				.streamResults().forEach(queryResult -> {
+					String recordName = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+					if (!isVersionClaimRecordName(recordName)) {
+						versionByName.put(recordName, getVersion(queryResult));
+					} else if (queryResult.getValue(OBJECT_FIELD_CREATED_DATE, ValueType.DATETIME).isBefore(oldestKeptDate)) {
+						claimIds.add(queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING));
+						claimNames.add(recordName);
+					}
+				});
+
+		int deleted = 0;
+		List<String> staleClaimIds = VaultCollections.newList();
+		for (int i = 0; i < claimNames.size(); i++) {
+			String claimName = claimNames.get(i);
+			int separator = claimName.lastIndexOf(VERSION_CLAIM_SEPARATOR);
+			Long currentVersion = versionByName.get(claimName.substring(0, separator));
+			long claimedVersion = Long.parseLong(claimName.substring(separator + VERSION_CLAIM_SEPARATOR.length()));
+			if (currentVersion != null && currentVersion.longValue() == claimedVersion) {
+				continue;
+			}
+			staleClaimIds.add(claimIds.get(i));
+			if (staleClaimIds.size() >= batchSize) {
+				deleteRecordIds(staleClaimIds);
+				deleted += staleClaimIds.size();
+				staleClaimIds = VaultCollections.newList();
+			}
+		}
+		if (!staleClaimIds.isEmpty()) {
+			deleteRecordIds(staleClaimIds);
+			deleted += staleClaimIds.size();
+		}
+		return deleted;
+	}
+
+	/**
+	 * Deletes payload records that no other vsdk_setting__c record points at, e.g. payloads of settings that changed since
+	 * or payloads saved by a settings save that failed.
+	 * Payloads younger than the cleanup grace period are kept, as a save that is still running may have inserted them before
+	 * saving the settings records that point at them. The references of each delete batch are queried again right before
+	 * it is deleted, so payloads that a save started to use while the records were streamed are kept.
+	 *
+	 * @param batchSize maximum number of records per delete
+	 *
+	 * @return the number of deleted records
+	 */
+	public int deleteUnreferencedPayloads(int batchSize) {
+		ZonedDateTime oldestKeptDate = ZonedDateTime.now(ZoneOffset.UTC).minusMinutes(CLEANUP_GRACE_MINUTES);
+		Map<String, String> payloadIdByHash = VaultCollections.newMap();
+		Set<String> referencedHashes = VaultCollections.newSet();
+		QueryService queryService = ServiceLocator.locate(QueryService.class);
+		queryService.query("SELECT " + OBJECT_FIELD_ID + ", " + OBJECT_FIELD_NAME + ", " + OBJECT_FIELD_JSON_HASH + ", " + OBJECT_FIELD_CREATED_DATE
+				+ " FROM " + OBJECT_SDK_SETTING)
+				.streamResults().forEach(queryResult -> {
+					String hash = queryResult.getValue(OBJECT_FIELD_JSON_HASH, ValueType.STRING);
+					if (hash == null) {
+						return;
+					}
+					if (isPayloadRecordName(queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING))) {
+						if (queryResult.getValue(OBJECT_FIELD_CREATED_DATE, ValueType.DATETIME).isBefore(oldestKeptDate)) {
+							payloadIdByHash.put(hash, queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING));
+						}
+					} else {
+						referencedHashes.add(hash);
+					}
+				});
+
+		int deleted = 0;
+		List<String> hashes = VaultCollections.newList();
+		for (String hash : payloadIdByHash.keySet()) {
+			if (referencedHashes.contains(hash)) {
+				continue;
+			}
+			hashes.add(hash);
+			if (hashes.size() >= batchSize) {
+				deleted += deleteUnreferencedPayloads(hashes, payloadIdByHash);
+				hashes = VaultCollections.newList();
+			}
+		}
+		if (!hashes.isEmpty()) {
+			deleted += deleteUnreferencedPayloads(hashes, payloadIdByHash);
+		}
+		return deleted;
+	}
+
+	/**
+	 * Deletes the payload records of the hashes that are still not referenced
+	 *
+	 * @param hashes content hashes that were not referenced when the records were streamed
+	 * @param payloadIdByHash payload record id by content hash
+	 *
+	 * @return the number of deleted records
+	 */
+	private int deleteUnreferencedPayloads(List<String> hashes, Map<String, String> payloadIdByHash) {
+		StringBuilder query = new StringBuilder("SELECT " + OBJECT_FIELD_NAME + ", " + OBJECT_FIELD_JSON_HASH
+				+ " FROM " + OBJECT_SDK_SETTING + " WHERE " + OBJECT_FIELD_JSON_HASH + " CONTAINS (");
+		for (int i = 0; i < hashes.size(); i++) {
+			if (i > 0) {
+				query.append(", ");
+			}
+			query.append(SettingQueries.quote(hashes.get(i)));
+		}
+		query.append(")");
+
+		Set<String> unreferencedHashes = VaultCollections.newSet();
+		unreferencedHashes.addAll(hashes);
+		ServiceLocator.locate(QueryService.class).query(query.toString()).streamResults().forEach(queryResult -> {
+			if (!isPayloadRecordName(queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING))) {
+				unreferencedHashes.remove(queryResult.getValue(OBJECT_FIELD_JSON_HASH, ValueType.STRING));
+			}
+		});
+		if (unreferencedHashes.isEmpty()) {
+			return 0;
+		}
+
+		List<String> recordIds = VaultCollections.newList();
+		for (String hash : unreferencedHashes) {
+			recordIds.add(payloadIdByHash.get(hash));
+		}
+		deleteRecordIds(recordIds);
+		return recordIds.size();
+	}
+
+	/**
+	 * Reads the content hash of every setting in the local vault, without the JSON.
+	 * Only the records of settings themselves are returned, see SettingDescriptor.isSettingRecordName.
+	 *
+	 * @return json_hash__c by record name; the hash is null for records saved before hashes were stored
+	 */
+	public Map<String, String> readHashes() {
+		Map<String, String> hashByName = VaultCollections.newMap();
+		QueryService queryService = ServiceLocator.locate(QueryService.class);
+		queryService.query("SELECT " + OBJECT_FIELD_NAME + ", " + OBJECT_FIELD_JSON_HASH + " FROM " + OBJECT_SDK_SETTING)
+				.streamResults().forEach(queryResult -> {
+					String recordName = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+					if (SettingDescriptor.isSettingRecordName(recordName)) {
+						hashByName.put(recordName, queryResult.getValue(OBJECT_FIELD_JSON_HASH, ValueType.STRING));
+					}
+				});
+		return hashByName;
+	}
+
+	/**
+	 * Reads a single setting together with its record version, with its logged operations folded on.
+	 * The version only covers the record, so operations appended later do not conflict with a compare-and-set save.
+	 *
+	 * @param settingName the setting name
+	 *
+	 * @return the JSON and version; version 0 and null JSON if neither the record nor operations exist
+	 */
+	public VersionedSetting<String> readVersioned(String settingName) {
+		List<String> recordNames = VaultCollections.asList(toRecordName(settingName));
+		String operationCriteria = readsOperations() ? SettingOperationLog.getCriteria(recordNames) : null;
+		Map<String, List<SettingOperation>> operationsBySettingName = VaultCollections.newMap();
+		QueryResult settingResult = null;
+		Iterator<QueryResult> results = query(recordNames, true, operationCriteria).streamResults().iterator();
+		while (results.hasNext()) {
+			QueryResult queryResult = results.next();
+			if (SettingOperationLog.isOperationRecordName(queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING))) {
+				addOperation(operationsBySettingName, settingName, queryResult);
+			} else if (settingResult == null) {
+				settingResult = queryResult;
+			}
+		}
+
+		String json = null;
+		long version = 0;
+		if (settingResult != null) {
+			json = settingResult.getValue(OBJECT_FIELD_JSON, ValueType.STRING);
+			String hash = settingResult.getValue(OBJECT_FIELD_JSON_HASH, ValueType.STRING);
+			if (json == null && hash != null) {
+				json = readPayloads(VaultCollections.asList(hash)).get(hash);
+			}
+			version = getVersion(settingResult);
+		}
+
+		Map<String, String> jsonBySettingName = VaultCollections.newMap();
+		if (json != null) {
+			jsonBySettingName.put(settingName, json);
+		}
+		foldOperations(operationsBySettingName, jsonBySettingName);
+		return new VersionedSetting<>(jsonBySettingName.get(settingName), version);
+	}
+
+	/**
+	 * Saves a single setting only if its record version still matches the expected version.
+	 * Before saving, the next version is claimed by inserting a <record name>~v<version> record. name__v is unique,
+	 * so of several saves that read the same version only one can insert the claim; the others get a conflict.
+	 * A successful save deletes the claims of older versions, so only the claim of its current version remains.
+	 * Only compare-and-set saves claim versions, so write is not ordered against them; write deletes the claims it moves past.
+	 *
+	 * @param settingName the setting name
+	 * @param json the settings JSON
+	 * @param expectedVersion the version that was read, 0 if the record did not exist
+	 *
+	 * @return SettingSaveResult
+	 */
+	public SettingSaveResult compareAndSet(String settingName, String json, long expectedVersion) {
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		String recordName = toRecordName(settingName);
+		List<String> recordNames = VaultCollections.asList(recordName);
+		long newVersion = expectedVersion + 1;
+
+		// Read the setting and its version claims together, and fail fast if the version moved
+		String recordId = null;
+		List<String> previousClaimIds = VaultCollections.newList();
+		long currentVersion = 0;
+		Iterator<QueryResult> results = query(recordNames, false, getVersionClaimCriteria(recordNames)).streamResults().iterator();
+		while (results.hasNext()) {
+			QueryResult queryResult = results.next();
+			String id = queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING);
+			String name = queryResult.getValue(OBJECT_FIELD_NAME, ValueType.STRING);
+			if (isVersionClaimOf(name, recordNames)) {
+				// Claims of newer versions may belong to saves that are still running; stale ones are left to SettingCompactionJob
+				if (getVersion(queryResult) < newVersion) {
+					previousClaimIds.add(id);
+				}
+			} else if (recordId == null && recordName.equals(name)) {
+				recordId = id;
+				currentVersion = getVersion(queryResult);
+			}
+		}
+		if (currentVersion != expectedVersion) {
+			return SettingSaveResult.conflict(currentVersion);
+		}
+
+		Record claim = recordService.newRecord(OBJECT_SDK_SETTING);
+		claim.setValue(OBJECT_FIELD_NAME, getVersionClaimName(recordName, newVersion));
+		claim.setValue(OBJECT_FIELD_VERSION, new BigDecimal(newVersion));
+		String claimId = claimVersion(claim);
+		if (claimId == null) {
+			return SettingSaveResult.conflict(readVersion(recordName));
+		}
+
+		// The older claims are deleted below, so a save that read an even older version could claim it again;
+		// checking the version once more, now that the claim is held, turns that save into a conflict
+		currentVersion = readVersion(recordName);
+		if (currentVersion != expectedVersion) {
+			deleteRecordIds(VaultCollections.asList(claimId));
+			return SettingSaveResult.conflict(currentVersion);
+		}
+
+		Record record;
+		if (recordId != null) {
+			record = recordService.newRecordWithId(OBJECT_SDK_SETTING, recordId);
+		} else {
+			record = recordService.newRecord(OBJECT_SDK_SETTING);
+			record.setValue(OBJECT_FIELD_NAME, recordName);
+		}
+		Map<String, String> payloadByHash = VaultCollections.newMap();
+		setJson(record, json, payloadByHash);
+		record.setValue(OBJECT_FIELD_VERSION, new BigDecimal(newVersion));
+		beforeSave(record);
+
+		Map<String, String> existingPayloadByHash = savePayloads(payloadByHash);
+		saveRecords(VaultCollections.asList(record));
+		restoreSweptPayloads(existingPayloadByHash);
+		deleteFoldedOperations(VaultCollections.asList(settingName));
+
+		// Each setting keeps only the claim of its current version; older claims left by plain writes are deleted as well
+		if (!previousClaimIds.isEmpty()) {
+			deleteRecordIds(previousClaimIds);
+		}
+		return SettingSaveResult.saved(newVersion);
+	}
+
+	/**
+	 * @param recordName the vsdk_setting__c record name of the setting
+	 * @param version the claimed version
+	 *
+	 * @return the name of the record that claims the version
+	 */
+	static String getVersionClaimName(String recordName, long version) {
+		return recordName + VERSION_CLAIM_SEPARATOR + version;
+	}
+
+	/**
+	 * Builds the criteria that match the version claims of settings, to be ORed with a name__v criteria
+	 *
+	 * @param recordNames the vsdk_setting__c record names; delta records are never claimed and are skipped
+	 *
+	 * @return the criteria, or null if none of the names can have claims
+	 */
+	private static String getVersionClaimCriteria(List<String> recordNames) {
+		StringBuilder criteria = new StringBuilder();
+		for (String recordName : recordNames) {
+			if (SettingDescriptor.isDeltaName(recordName)) {
+				continue;
+			}
+			if (criteria.length() > 0) {
+				criteria.append(" OR ");
+			}
+			criteria.append(OBJECT_FIELD_NAME).append(" LIKE ").append(SettingQueries.quote(recordName + VERSION_CLAIM_SEPARATOR + "%"));
+		}
+		return criteria.length() == 0 ? null : criteria.toString();
+	}
+
+	/**
+	 * @param name a vsdk_setting__c record name
+	 * @param recordNames the record names of settings
+	 *
+	 * @return true if the record is a version claim of one of the settings
+	 */
+	private static boolean isVersionClaimOf(String name, Collection<String> recordNames) {
+		return isVersionClaimRecordName(name) && recordNames.contains(name.substring(0, name.lastIndexOf(VERSION_CLAIM_SEPARATOR)));
+	}
+
+	/**
+	 * @param recordName a vsdk_setting__c record name
+	 *
+	 * @return true if the record claims a version of a setting for a compare-and-set save
+	 */
+	public static boolean isVersionClaimRecordName(String recordName) {
+		int separator = recordName.lastIndexOf(VERSION_CLAIM_SEPARATOR);
+		if (separator < 0 || separator + VERSION_CLAIM_SEPARATOR.length() == recordName.length()) {
+			return false;
+		}
+		for (int i = separator + VERSION_CLAIM_SEPARATOR.length(); i < recordName.length(); i++) {
+			if (!Character.isDigit(recordName.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts a version claim. The claim only sets name__v and version__c, so a failed insert means the name is taken.
+	 *
+	 * @param claim the new claim record
+	 *
+	 * @return the id of the claim record, or null if the version was already claimed
+	 */
+	private String claimVersion(Record claim) {
+		List<String> claimIds = VaultCollections.newList();
+		SettingSpan span = SettingTracer.startSpan("LocalSettingStore.claimVersion", SettingTracer.CATEGORY_SAVE);
+		try {
+			ServiceLocator.locate(RecordService.class).batchSaveRecords(VaultCollections.asList(claim))
+					.onSuccesses(positionalRecordIds -> positionalRecordIds.forEach(positionalRecordId ->
+							claimIds.add(positionalRecordId.getRecordId())))
+					.onErrors(batchOperationErrors -> {
+						// The name__v is taken: another save claimed the version first
+					})
+					.execute();
+		} finally {
+			span.setAttribute("claimed", String.valueOf(!claimIds.isEmpty()));
+			span.end();
+		}
+		return claimIds.isEmpty() ? null : claimIds.get(0);
+	}
+
+	/**
+	 * @return the version__c of the newest record of a name, 0 if it does not exist
+	 */
+	private long readVersion(String recordName) {
+		Iterator<QueryResult> results = query(VaultCollections.asList(recordName), false).streamResults().iterator();
+		return results.hasNext() ? getVersion(results.next()) : 0;
+	}
+
+	private void deleteRecordIds(List<String> recordIds) {
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		List<Record> records = VaultCollections.newList();
+		for (String recordId : recordIds) {
+			records.add(recordService.newRecordWithId(OBJECT_SDK_SETTING, recordId));
+		}
+		recordService.batchDeleteRecords(records)
+				.rollbackOnErrors()
+				.execute();
+	}
+}
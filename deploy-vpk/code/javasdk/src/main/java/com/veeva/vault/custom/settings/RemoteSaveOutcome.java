@@ -0,0 +1,63 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	RemoteSaveOutcome
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Outcome of saving settings to one remote vault.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * Success, or failure with the error returned by the remote vault
+ */
+@UserDefinedClassInfo
+public final class RemoteSaveOutcome {
+
+	private final boolean success;
+	private final String message;
+
+	private RemoteSaveOutcome(boolean success, String message) {
+		this.success = success;
+		this.message = message;
+	}
+
+	/**
+	 * @return RemoteSaveOutcome
+	 */
+	public static RemoteSaveOutcome success() {
+		return new RemoteSaveOutcome(true, null);
+	}
+
+	/**
+	 * @param message the error message
+	 *
+	 * @return RemoteSaveOutcome
+	 */
+	public static RemoteSaveOutcome failure(String message) {
+		return new RemoteSaveOutcome(false, message);
+	}
+
+	/**
+	 * @return true if the remote vault saved the settings
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	/**
+	 * @return the error message, or null on success
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
@@ -0,0 +1,352 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingJson
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Helpers that work on the top-level properties of the
+ * 				JSON stored in vsdk_setting__c, so settings layers
+ * 				can be combined before a single UDM conversion.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.RollbackException;
+import com.veeva.vault.sdk.api.core.ServiceLocator;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+import com.veeva.vault.sdk.api.json.JsonArray;
+import com.veeva.vault.sdk.api.json.JsonData;
+import com.veeva.vault.sdk.api.json.JsonObject;
+import com.veeva.vault.sdk.api.json.JsonService;
+import com.veeva.vault.sdk.api.json.JsonValueType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a JSON object into its top-level properties, parsed with the JsonService.
+ * Property values are kept as JSON text, so they can be compared and copied as-is;
+ * strings are re-quoted and nested objects and arrays are written back with asString.
+ */
+@UserDefinedClassInfo
+public final class SettingJson {
+
+	public static final String EMPTY_OBJECT = "{}";
+	private static final String JSON_NULL = "null";
+	private static final String ERROR_INVALID_JSON = "INVALID_SETTING_JSON";
+
+	private final List<String> names = VaultCollections.newList();
+	private final Map<String, String> values = VaultCollections.newMap();
+
+	private SettingJson() {
+	}
+
+	/**
+	 * @return an empty JSON object
+	 */
+	public static SettingJson empty() {
+		return new SettingJson();
+	}
+
+	/**
+	 * Parses the top-level properties of a JSON object
+	 *
+	 * @param json JSON object text
+	 *
+	 * @return SettingJson
+	 */
+	public static SettingJson parse(String json) {
+		JsonObject jsonObject = readJson(json).getJsonObject();
+		SettingJson result = new SettingJson();
+		for (String name : jsonObject.getProperties().keySet()) {
+			result.set(name, toRawValue(jsonObject, name));
+		}
+		return result;
+	}
+
+	/**
+	 * Overlays settings layers from lowest to highest precedence.
+	 * Null values in a higher layer do not override a lower layer.
+	 *
+	 * @param layers JSON objects ordered from lowest to highest precedence
+	 *
+	 * @return merged JSON object text
+	 */
+	public static String overlay(List<String> layers) {
+		if (layers.size() == 1) {
+			return layers.get(0);
+		}
+
+		SettingJson merged = empty();
+		for (String layer : layers) {
+			SettingJson parsed = parse(layer);
+			for (String name : parsed.names) {
+				String value = parsed.values.get(name);
+				if (!JSON_NULL.equals(value)) {
+					merged.set(name, value);
+				}
+			}
+		}
+		return merged.toString();
+	}
+
+	/**
+	 * Computes a property-level patch that turns one settings document into another.
+	 * Changed and added properties carry their new value, removed properties are set to null.
+	 *
+	 * @param fromJson the previous JSON object
+	 * @param toJson the new JSON object
+	 *
+	 * @return patch JSON object, EMPTY_OBJECT if nothing changed
+	 */
+	public static String diff(String fromJson, String toJson) {
+		SettingJson from = parse(fromJson);
+		SettingJson to = parse(toJson);
+		SettingJson patch = empty();
+
+		for (String name : to.names) {
+			String value = to.values.get(name);
+			if (!value.equals(from.values.get(name))) {
+				patch.set(name, value);
+			}
+		}
+		for (String name : from.names) {
+			if (!to.contains(name)) {
+				patch.set(name, JSON_NULL);
+			}
+		}
+		return patch.toString();
+	}
+
+	/**
+	 * Applies a patch created by diff. Null values in the patch remove the property.
+	 *
+	 * @param baseJson the JSON object the patch applies to
+	 * @param patchJson the patch JSON object
+	 *
+	 * @return patched JSON object text
+	 */
+	public static String applyPatch(String baseJson, String patchJson) {
+		SettingJson patch = parse(patchJson);
+		if (patch.isEmpty()) {
+			return baseJson;
+		}
+
+		SettingJson base = parse(baseJson);
+		for (String name : patch.names) {
+			String value = patch.values.get(name);
+			if (JSON_NULL.equals(value)) {
+				base.remove(name);
+			} else {
+				base.set(name, value);
+			}
+		}
+		return base.toString();
+	}
+
+	/**
+	 * @param json JSON text
+	 *
+	 * @return true if the text is an object without properties
+	 */
+	public static boolean isEmptyObject(String json) {
+		return EMPTY_OBJECT.equals(json.trim());
+	}
+
+	/**
+	 * Splits a JSON array into its elements
+	 *
+	 * @param json JSON array text, or null
+	 *
+	 * @return the raw JSON text of each element; empty for null
+	 */
+	public static List<String> parseArray(String json) {
+		List<String> elements = VaultCollections.newList();
+		if (json == null || JSON_NULL.equals(json)) {
+			return elements;
+		}
+
+		JsonArray jsonArray = readJson(json).getJsonArray();
+		for (int i = 0; i < jsonArray.getSize(); i++) {
+			elements.add(toRawValue(jsonArray, i));
+		}
+		return elements;
+	}
+
+	/**
+	 * @param elements raw JSON text of each element
+	 *
+	 * @return JSON array text
+	 */
+	public static String toArray(List<String> elements) {
+		StringBuilder json = new StringBuilder("[");
+		for (String element : elements) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append(element);
+		}
+		return json.append(']').toString();
+	}
+
+	/**
+	 * @param value text value
+	 *
+	 * @return JSON string text, with quotes, backslashes and control characters escaped
+	 */
+	public static String toStringValue(String value) {
+		StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				String hex = Integer.toHexString(c);
+				json.append("\\u");
+				for (int padding = hex.length(); padding < 4; padding++) {
+					json.append('0');
+				}
+				json.append(hex);
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+
+	/**
+	 * @return the property names, in the order they were parsed or set
+	 */
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @param name property name
+	 *
+	 * @return the raw JSON value text, or null if the property is absent
+	 */
+	public String get(String name) {
+		return values.get(name);
+	}
+
+	/**
+	 * @param name property name
+	 *
+	 * @return true if the property is present (even with a JSON null value)
+	 */
+	public boolean contains(String name) {
+		return values.containsKey(name);
+	}
+
+	/**
+	 * Sets a property to raw JSON value text
+	 *
+	 * @param name property name
+	 * @param rawValue JSON value text, e.g. "500" or "[\"pending__c\"]"
+	 */
+	public void set(String name, String rawValue) {
+		if (!values.containsKey(name)) {
+			names.add(name);
+		}
+		values.put(name, rawValue);
+	}
+
+	/**
+	 * Removes a property
+	 *
+	 * @param name property name
+	 */
+	public void remove(String name) {
+		if (values.remove(name) != null) {
+			names.remove(name);
+		}
+	}
+
+	/**
+	 * @return true if there are no properties
+	 */
+	public boolean isEmpty() {
+		return names.isEmpty();
+	}
+
+	/**
+	 * @return the JSON object text
+	 */
+	@Override
+	public String toString() {
+		StringBuilder json = new StringBuilder("{");
+		for (String name : names) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append(toStringValue(name)).append(':').append(values.get(name));
+		}
+		return json.append('}').toString();
+	}
+
+	/**
+	 * Parses JSON text with the JsonService
+	 *
+	 * @param json JSON text
+	 *
+	 * @return the parsed JSON
+	 */
+	private static JsonData readJson(String json) {
+		JsonService jsonService = ServiceLocator.locate(JsonService.class);
+		JsonData jsonData = jsonService.readJson(json);
+		if (!jsonData.isValidJson()) {
+			throw new RollbackException(ERROR_INVALID_JSON, "Invalid settings JSON");
+		}
+		return jsonData;
+	}
+
+	/**
+	 * @return the value of an object property as JSON text
+	 */
+	private static String toRawValue(JsonObject jsonObject, String name) {
+		if (jsonObject.isNullValue(name)) {
+			return JSON_NULL;
+		}
+
+		JsonValueType<?> valueType = jsonObject.getValueType(name);
+		if (valueType == JsonValueType.STRING) {
+			return toStringValue(jsonObject.getValue(name, JsonValueType.STRING));
+		} else if (valueType == JsonValueType.NUMBER) {
+			return jsonObject.getValue(name, JsonValueType.NUMBER).toPlainString();
+		} else if (valueType == JsonValueType.BOOLEAN) {
+			return String.valueOf(jsonObject.getValue(name, JsonValueType.BOOLEAN));
+		} else if (valueType == JsonValueType.OBJECT) {
+			return jsonObject.getValue(name, JsonValueType.OBJECT).asString();
+		}
+		return jsonObject.getValue(name, JsonValueType.ARRAY).asString();
+	}
+
+	/**
+	 * @return the value of an array element as JSON text
+	 */
+	private static String toRawValue(JsonArray jsonArray, int index) {
+		if (jsonArray.isNullValue(index)) {
+			return JSON_NULL;
+		}
+
+		JsonValueType<?> valueType = jsonArray.getValueType(index);
+		if (valueType == JsonValueType.STRING) {
+			return toStringValue(jsonArray.getValue(index, JsonValueType.STRING));
+		} else if (valueType == JsonValueType.NUMBER) {
+			return jsonArray.getValue(index, JsonValueType.NUMBER).toPlainString();
+		} else if (valueType == JsonValueType.BOOLEAN) {
+			return String.valueOf(jsonArray.getValue(index, JsonValueType.BOOLEAN));
+		} else if (valueType == JsonValueType.OBJECT) {
+			return jsonArray.getValue(index, JsonValueType.OBJECT).asString();
+		}
+		return jsonArray.getValue(index, JsonValueType.ARRAY).asString();
+	}
+}
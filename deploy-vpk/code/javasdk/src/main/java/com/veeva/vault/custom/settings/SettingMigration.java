@@ -0,0 +1,37 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingMigration
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				A migration upgrades stored settings JSON from one
+ * 				schema version to the next.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * Settings schema migration from getFromVersion() to getFromVersion() + 1
+ */
+@UserDefinedClassInfo
+public interface SettingMigration {
+	/**
+	 * @return the schema version this migration upgrades from
+	 */
+	int getFromVersion();
+
+	/**
+	 * Upgrades the settings properties in place
+	 *
+	 * @param settings top-level properties of the stored settings
+	 */
+	void migrate(SettingJson settings);
+}
@@ -0,0 +1,76 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingMigrations
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Common settings migrations, for use when registering
+ * 				a SettingSchema.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * Factory for common migrations
+ */
+@UserDefinedClassInfo
+public final class SettingMigrations {
+
+	private SettingMigrations() {
+	}
+
+	/**
+	 * Renames a property, keeping its value
+	 *
+	 * @param fromVersion the schema version this migration upgrades from
+	 * @param oldName the property name in fromVersion
+	 * @param newName the property name in fromVersion + 1
+	 *
+	 * @return SettingMigration
+	 */
+	public static SettingMigration renameProperty(int fromVersion, String oldName, String newName) {
+		return new SettingMigration() {
+			public int getFromVersion() {
+				return fromVersion;
+			}
+
+			public void migrate(SettingJson settings) {
+				if (settings.contains(oldName)) {
+					settings.set(newName, settings.get(oldName));
+					settings.remove(oldName);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Adds a property with a default value if it is not already present
+	 *
+	 * @param fromVersion the schema version this migration upgrades from
+	 * @param name the property name
+	 * @param rawValue the default as JSON value text, e.g. "500"
+	 *
+	 * @return SettingMigration
+	 */
+	public static SettingMigration addProperty(int fromVersion, String name, String rawValue) {
+		return new SettingMigration() {
+			public int getFromVersion() {
+				return fromVersion;
+			}
+
+			public void migrate(SettingJson settings) {
+				if (!settings.contains(name)) {
+					settings.set(name, rawValue);
+				}
+			}
+		};
+	}
+}
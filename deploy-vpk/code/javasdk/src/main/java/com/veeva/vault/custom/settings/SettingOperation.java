@@ -0,0 +1,148 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingOperation
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				A single small change to a settings document, stored
+ * 				as its own record in the settings operation log.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.RollbackException;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+import java.util.List;
+
+/**
+ * Adds an element to a list property, removes an element from a list property, or sets a property.
+ * Values are raw JSON value text, e.g. "\"pending__c\"" or "500".
+ * Adding an element that is already in the list has no effect, so list properties behave as sets.
+ */
+@UserDefinedClassInfo
+public final class SettingOperation {
+
+	private static final String TYPE_ADD = "add";
+	private static final String TYPE_REMOVE = "remove";
+	private static final String TYPE_SET = "set";
+	private static final String PROPERTY_TYPE = "op";
+	private static final String PROPERTY_NAME = "property";
+	private static final String PROPERTY_VALUE = "value";
+	private static final String ERROR_INVALID_OPERATION = "INVALID_SETTING_OPERATION";
+
+	private final String type;
+	private final String property;
+	private final String rawValue;
+	private final String recordId;
+
+	private SettingOperation(String type, String property, String rawValue, String recordId) {
+		this.type = type;
+		this.property = property;
+		this.rawValue = rawValue;
+		this.recordId = recordId;
+	}
+
+	/**
+	 * @param property list property name, e.g. status_types
+	 * @param rawValue the element as JSON value text
+	 *
+	 * @return SettingOperation
+	 */
+	public static SettingOperation addToList(String property, String rawValue) {
+		return new SettingOperation(TYPE_ADD, property, rawValue, null);
+	}
+
+	/**
+	 * @param property list property name, e.g. status_types
+	 * @param rawValue the element as JSON value text
+	 *
+	 * @return SettingOperation
+	 */
+	public static SettingOperation removeFromList(String property, String rawValue) {
+		return new SettingOperation(TYPE_REMOVE, property, rawValue, null);
+	}
+
+	/**
+	 * @param property property name, e.g. batch_size
+	 * @param rawValue the value as JSON value text
+	 *
+	 * @return SettingOperation
+	 */
+	public static SettingOperation set(String property, String rawValue) {
+		return new SettingOperation(TYPE_SET, property, rawValue, null);
+	}
+
+	/**
+	 * Parses an operation stored in the operation log
+	 *
+	 * @param json the operation JSON
+	 * @param recordId id of the record that holds the operation
+	 *
+	 * @return SettingOperation
+	 */
+	static SettingOperation parse(String json, String recordId) {
+		SettingJson operation = SettingJson.parse(json);
+		String type = unquote(operation.get(PROPERTY_TYPE));
+		String property = unquote(operation.get(PROPERTY_NAME));
+		if (type == null || property == null || !operation.contains(PROPERTY_VALUE)) {
+			throw new RollbackException(ERROR_INVALID_OPERATION, "Invalid settings operation: " + json);
+		}
+		return new SettingOperation(type, property, operation.get(PROPERTY_VALUE), recordId);
+	}
+
+	private static String unquote(String rawValue) {
+		if (rawValue == null || rawValue.length() < 2 || rawValue.charAt(0) != '"') {
+			return null;
+		}
+		return rawValue.substring(1, rawValue.length() - 1);
+	}
+
+	/**
+	 * @return id of the record that holds the operation, null if it has not been read from the log
+	 */
+	String getRecordId() {
+		return recordId;
+	}
+
+	/**
+	 * @return the operation as JSON
+	 */
+	String toJson() {
+		SettingJson operation = SettingJson.empty();
+		operation.set(PROPERTY_TYPE, "\"" + type + "\"");
+		operation.set(PROPERTY_NAME, "\"" + property + "\"");
+		operation.set(PROPERTY_VALUE, rawValue);
+		return operation.toString();
+	}
+
+	/**
+	 * Applies the operation to a settings document
+	 *
+	 * @param settings the settings document
+	 */
+	void applyTo(SettingJson settings) {
+		if (TYPE_SET.equals(type)) {
+			settings.set(property, rawValue);
+			return;
+		}
+
+		List<String> elements = SettingJson.parseArray(settings.get(property));
+		if (TYPE_ADD.equals(type)) {
+			if (!elements.contains(rawValue)) {
+				elements.add(rawValue);
+			}
+		} else if (TYPE_REMOVE.equals(type)) {
+			elements.remove(rawValue);
+		} else {
+			throw new RollbackException(ERROR_INVALID_OPERATION, "Unknown settings operation: " + type);
+		}
+		settings.set(property, SettingJson.toArray(elements));
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingOperationLog
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Append-only log of small settings changes, so a
+ * 				single list entry can be changed without rewriting
+ * 				the whole settings document.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.ServiceLocator;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+import com.veeva.vault.sdk.api.data.Record;
+import com.veeva.vault.sdk.api.data.RecordService;
+import com.veeva.vault.sdk.api.query.QueryService;
+
+import java.util.List;
+
+/**
+ * Each operation is a vsdk_setting__c record named <operation key>~op~<millis>-<sequence>-<hash>,
+ * so the operations of a setting sort in the order they were appended.
+ * The operation key is the setting name, shortened with a hash of the name when the record name would not fit in name__v.
+ * LocalSettingStore reads the operations in the same query as their settings and folds them onto the stored document;
+ * when it writes a folded document, it deletes the operation records that were folded into it, and only those.
+ */
+@UserDefinedClassInfo
+public final class SettingOperationLog {
+
+	/**
+	 * Number of logged operations at which a setting is compacted
+	 */
+	public static final int COMPACTION_THRESHOLD = 50;
+	private static final String OPERATION_SEPARATOR = "~op~";
+	private static final int MAX_NAME_LENGTH = 128;
+	// <millis>-<sequence>-<hash> after the separator: 13 digits, 4 digits and 8 hex characters
+	private static final int MAX_OPERATION_KEY_LENGTH = MAX_NAME_LENGTH - OPERATION_SEPARATOR.length() - 27;
+	private static final String SHORTENED_KEY_SEPARATOR = "#";
+	private static final int DELETE_BATCH_SIZE = 500;
+	// Appends to settings this request has not read count their log with a query only once in this many appends
+	private static final int COUNT_SAMPLE_RATE = 10;
+
+	/**
+	 * @param recordName a vsdk_setting__c record name
+	 *
+	 * @return true if the record holds a logged operation rather than a setting
+	 */
+	public static boolean isOperationRecordName(String recordName) {
+		return recordName.contains(OPERATION_SEPARATOR);
+	}
+
+	/**
+	 * @param recordName the vsdk_setting__c record name of an operation
+	 *
+	 * @return the operation key of the setting the operation applies to, see getOperationKey
+	 */
+	public static String getOperationKey(String recordName) {
+		return recordName.substring(0, recordName.lastIndexOf(OPERATION_SEPARATOR));
+	}
+
+	/**
+	 * Gets the prefix of the operation record names of a setting.
+	 * Names of scoped settings can be too long to be followed by the operation suffix within name__v;
+	 * those keep the start of the name, followed by the hash of the full name.
+	 *
+	 * @param settingName the vsdk_setting__c record name of the setting
+	 *
+	 * @return the setting name, or its shortened form if the operation record names would be too long
+	 */
+	static String getOperationKeyOf(String settingName) {
+		if (settingName.length() <= MAX_OPERATION_KEY_LENGTH) {
+			return settingName;
+		}
+		String hash = SettingHash.of(settingName);
+		return settingName.substring(0, MAX_OPERATION_KEY_LENGTH - SHORTENED_KEY_SEPARATOR.length() - hash.length())
+				+ SHORTENED_KEY_SEPARATOR + hash;
+	}
+
+	/**
+	 * Builds the criteria that match the operation records of settings, to be ORed with a name__v criteria
+	 *
+	 * @param settingNames the vsdk_setting__c record names; delta records have no operations and are skipped
+	 *
+	 * @return the criteria, or null if none of the names can have operations
+	 */
+	static String getCriteria(List<String> settingNames) {
+		StringBuilder criteria = new StringBuilder();
+		for (String settingName : settingNames) {
+			if (SettingDescriptor.isDeltaName(settingName)) {
+				continue;
+			}
+			if (criteria.length() > 0) {
+				criteria.append(" OR ");
+			}
+			criteria.append(LocalSettingStore.OBJECT_FIELD_NAME).append(" LIKE ")
+					.append(SettingQueries.quote(getOperationKeyOf(settingName) + OPERATION_SEPARATOR + "%"));
+		}
+		return criteria.length() == 0 ? null : criteria.toString();
+	}
+
+	/**
+	 * Applies operations, in order, to a settings document
+	 *
+	 * @param json the settings JSON, or null if there is no stored document
+	 * @param operations the logged operations
+	 *
+	 * @return the resulting JSON; the input JSON if there are no operations
+	 */
+	public static String fold(String json, List<SettingOperation> operations) {
+		if (operations == null || operations.isEmpty()) {
+			return json;
+		}
+
+		SettingJson settings = SettingJson.parse(json == null ? SettingJson.EMPTY_OBJECT : json);
+		for (SettingOperation operation : operations) {
+			operation.applyTo(settings);
+		}
+		return settings.toString();
+	}
+
+	/**
+	 * Appends an operation with a single insert.
+	 * If this request read the setting with operations folded on, those give the count without a query;
+	 * otherwise the log is counted on a sample of appends, picked by the hash of the new record name,
+	 * so a growing log still reaches COMPACTION_THRESHOLD while most appends cost the insert alone.
+	 *
+	 * @param settingName the vsdk_setting__c record name of the setting
+	 * @param operation the operation
+	 *
+	 * @return the number of operations logged for the setting, including this one; 0 if the log was not counted
+	 */
+	public long append(String settingName, SettingOperation operation) {
+		String json = operation.toJson();
+		String hash = SettingHash.of(json);
+		String sequence = String.valueOf(10000 + SettingRequestCache.get().nextOperationSequence() % 10000).substring(1);
+		String recordName = getOperationKeyOf(settingName) + OPERATION_SEPARATOR + System.currentTimeMillis()
+				+ "-" + sequence + "-" + hash.substring(0, 8);
+
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		Record record = recordService.newRecord(LocalSettingStore.OBJECT_SDK_SETTING);
+		record.setValue(LocalSettingStore.OBJECT_FIELD_NAME, recordName);
+		record.setValue(LocalSettingStore.OBJECT_FIELD_JSON, json);
+		record.setValue(LocalSettingStore.OBJECT_FIELD_JSON_HASH, hash);
+		recordService.batchSaveRecords(VaultCollections.asList(record))
+				.rollbackOnErrors()
+				.execute();
+
+		List<SettingOperation> foldedOperations = SettingRequestCache.get().getFoldedOperations(settingName);
+		if (foldedOperations != null) {
+			return foldedOperations.size() + 1;
+		}
+		if (Long.parseLong(SettingHash.of(recordName).substring(0, 4), 16) % COUNT_SAMPLE_RATE != 0) {
+			return 0;
+		}
+		return count(settingName);
+	}
+
+	/**
+	 * Deletes operation records, e.g. after they were folded into the settings document
+	 *
+	 * @param operations operations folded into a settings document
+	 */
+	public void delete(List<SettingOperation> operations) {
+		List<String> recordIds = VaultCollections.newList();
+		for (SettingOperation operation : operations) {
+			recordIds.add(operation.getRecordId());
+		}
+		deleteRecords(recordIds);
+	}
+
+	private void deleteRecords(List<String> recordIds) {
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		List<Record> records = VaultCollections.newList();
+		for (String recordId : recordIds) {
+			records.add(recordService.newRecordWithId(LocalSettingStore.OBJECT_SDK_SETTING, recordId));
+			if (records.size() >= DELETE_BATCH_SIZE) {
+				recordService.batchDeleteRecords(records).rollbackOnErrors().execute();
+				records = VaultCollections.newList();
+			}
+		}
+		if (!records.isEmpty()) {
+			recordService.batchDeleteRecords(records).rollbackOnErrors().execute();
+		}
+	}
+
+	/**
+	 * Counts the operation records of a setting
+	 *
+	 * @param settingName the vsdk_setting__c record name of the setting
+	 *
+	 * @return the number of logged operations
+	 */
+	private long count(String settingName) {
+		String query = "SELECT " + LocalSettingStore.OBJECT_FIELD_ID
+				+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING
+				+ " WHERE " + getCriteria(VaultCollections.asList(settingName));
+
+		SettingSpan span = SettingTracer.startSpan("SettingOperationLog.count", SettingTracer.CATEGORY_QUERY);
+		try {
+			QueryService queryService = ServiceLocator.locate(QueryService.class);
+			return queryService.query(query).getResultCount();
+		} finally {
+			span.end();
+		}
+	}
+}
@@ -16,11 +16,12 @@ package com.veeva.vault.custom.settings;
 import com.veeva.vault.sdk.api.core.*;
 
 /**
- * Model that presents a single vsdk_setting__c record for a remote vault
+ * Model that presents a single vsdk_setting__c record for a remote vault.
+ * Null properties are left out of request bodies, so json_hash__c is only sent to vaults that have the field.
  *
  * @return RemoteSettingRecordModel
  */
-@UserDefinedModelInfo()
+@UserDefinedModelInfo(include = UserDefinedPropertyInclude.NON_NULL)
 public interface SettingRecordModel extends UserDefinedModel {
 
 	@UserDefinedProperty(name = "name__v")
@@ -30,4 +31,8 @@ public interface SettingRecordModel extends UserDefinedModel {
 	@UserDefinedProperty(name = "json__c")
 	String getJson();
 	void setJson(String json);
+
+	@UserDefinedProperty(name = "json_hash__c")
+	String getJsonHash();
+	void setJsonHash(String jsonHash);
 }
\ No newline at end of file
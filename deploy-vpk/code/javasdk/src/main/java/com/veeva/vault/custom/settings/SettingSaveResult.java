@@ -0,0 +1,72 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingSaveResult
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Outcome of a compare-and-set settings save.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * Either the settings were saved with a new version, or the stored version had moved (conflict).
+ */
+@UserDefinedClassInfo
+public final class SettingSaveResult {
+
+	private final boolean saved;
+	private final long version;
+
+	private SettingSaveResult(boolean saved, long version) {
+		this.saved = saved;
+		this.version = version;
+	}
+
+	/**
+	 * @param newVersion the version of the saved record
+	 *
+	 * @return SettingSaveResult
+	 */
+	public static SettingSaveResult saved(long newVersion) {
+		return new SettingSaveResult(true, newVersion);
+	}
+
+	/**
+	 * @param currentVersion the version currently stored
+	 *
+	 * @return SettingSaveResult
+	 */
+	public static SettingSaveResult conflict(long currentVersion) {
+		return new SettingSaveResult(false, currentVersion);
+	}
+
+	/**
+	 * @return true if the settings were saved
+	 */
+	public boolean isSaved() {
+		return saved;
+	}
+
+	/**
+	 * @return true if the stored version did not match the expected version
+	 */
+	public boolean isConflict() {
+		return !saved;
+	}
+
+	/**
+	 * @return the new version if saved, otherwise the version currently stored
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
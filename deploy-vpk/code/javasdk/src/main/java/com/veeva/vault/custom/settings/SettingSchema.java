@@ -0,0 +1,157 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingSchema
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The schema version of a settings model and the chain
+ * 				of migrations that upgrade older stored JSON to it.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.UserDefinedModel;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+
+/**
+ * Stored settings carry a schema_version property. JSON without it is treated as version 1.
+ * Migrations are applied on read, so model changes never require a bulk rewrite of settings records.
+ * Scoped layers only hold the properties they override, so document migrations, which fill in defaults,
+ * are skipped for them; a default added to a layer would otherwise override the global value when layers are overlaid.
+ */
+@UserDefinedClassInfo
+public final class SettingSchema {
+
+	static final String PROPERTY_SCHEMA_VERSION = "schema_version";
+	private static final int INITIAL_VERSION = 1;
+
+	private final int currentVersion;
+	private final List<SettingMigration> migrations = VaultCollections.newList();
+	private final List<SettingMigration> documentMigrations = VaultCollections.newList();
+
+	/**
+	 * @param currentVersion the schema version of the current model
+	 */
+	public SettingSchema(int currentVersion) {
+		this.currentVersion = currentVersion;
+	}
+
+	/**
+	 * Gets the registered schema of a settings class.
+	 * Register a class here when its model changes, bumping the version and adding a migration.
+	 *
+	 * @param settingsClass the interface reference
+	 *
+	 * @return SettingSchema
+	 */
+	public static SettingSchema forClass(Class<? extends UserDefinedModel> settingsClass) {
+		// Version 2 stores the adaptive batch bounds explicitly, so admins can see and tune them
+		if (settingsClass == ExampleSettings.class) {
+			return new SettingSchema(2)
+					.addDocumentMigration(SettingMigrations.addProperty(1, "min_batch_size", "10"))
+					.addDocumentMigration(SettingMigrations.addProperty(1, "target_batch_millis", "5000"));
+		}
+
+		return new SettingSchema(INITIAL_VERSION);
+	}
+
+	/**
+	 * Registers a migration
+	 *
+	 * @param migration the migration
+	 *
+	 * @return this schema
+	 */
+	public SettingSchema addMigration(SettingMigration migration) {
+		migrations.add(migration);
+		return this;
+	}
+
+	/**
+	 * Registers a migration that only applies to full settings documents, not to scoped layers, e.g. SettingMigrations.addProperty
+	 *
+	 * @param migration the migration
+	 *
+	 * @return this schema
+	 */
+	public SettingSchema addDocumentMigration(SettingMigration migration) {
+		documentMigrations.add(migration);
+		return addMigration(migration);
+	}
+
+	/**
+	 * @return the schema version of the current model
+	 */
+	public int getCurrentVersion() {
+		return currentVersion;
+	}
+
+	/**
+	 * Stamps the current schema version into settings JSON before it is stored
+	 *
+	 * @param json settings JSON
+	 *
+	 * @return stamped settings JSON
+	 */
+	public String stamp(String json) {
+		SettingJson settings = SettingJson.parse(json);
+		settings.set(PROPERTY_SCHEMA_VERSION, String.valueOf(currentVersion));
+		return settings.toString();
+	}
+
+	/**
+	 * Upgrades a stored settings document to the current schema version
+	 *
+	 * @param json stored settings JSON
+	 *
+	 * @return the same instance if it is already current, otherwise the migrated JSON
+	 */
+	public String upgrade(String json) {
+		return upgrade(json, true);
+	}
+
+	/**
+	 * Upgrades stored settings JSON to the current schema version
+	 *
+	 * @param json stored settings JSON
+	 * @param fullDocument false for a scoped layer, which is upgraded without the document migrations
+	 *
+	 * @return the same instance if it is already current, otherwise the migrated JSON
+	 */
+	public String upgrade(String json, boolean fullDocument) {
+		// Nothing can be outdated before the first migration is registered
+		if (migrations.isEmpty()) {
+			return json;
+		}
+
+		SettingJson settings = SettingJson.parse(json);
+		int version = INITIAL_VERSION;
+		String storedVersion = settings.get(PROPERTY_SCHEMA_VERSION);
+		if (storedVersion != null) {
+			version = Integer.parseInt(storedVersion);
+		}
+		if (version >= currentVersion) {
+			return json;
+		}
+
+		for (; version < currentVersion; version++) {
+			for (SettingMigration migration : migrations) {
+				if (migration.getFromVersion() == version && (fullDocument || !documentMigrations.contains(migration))) {
+					migration.migrate(settings);
+				}
+			}
+		}
+
+		settings.set(PROPERTY_SCHEMA_VERSION, String.valueOf(currentVersion));
+		return settings.toString();
+	}
+}
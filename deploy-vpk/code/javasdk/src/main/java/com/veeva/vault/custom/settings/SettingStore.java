@@ -0,0 +1,47 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingStore
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Storage backend for settings JSON, keyed by the
+ * 				vsdk_setting__c record name. Backends can be
+ * 				composed into tiers with TieredSettingStore.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings storage backend
+ */
+@UserDefinedClassInfo
+public interface SettingStore {
+	/**
+	 * Reads settings JSON by record name
+	 *
+	 * @param settingNames the vsdk_setting__c record names
+	 *
+	 * @return JSON by record name; names that were not found are absent
+	 */
+	Map<String, String> read(List<String> settingNames);
+
+	/**
+	 * Writes settings JSON by record name, creating records that do not exist
+	 *
+	 * @param jsonByName JSON by record name
+	 *
+	 * @return true if the settings were stored
+	 */
+	boolean write(Map<String, String> jsonByName);
+}
@@ -0,0 +1,74 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingStores
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Builds the tiered settings stores used by the
+ * 				CustomSettingService.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+
+/**
+ * Tier layouts for local and remote settings
+ */
+@UserDefinedClassInfo
+public final class SettingStores {
+
+	private static final String LOCAL_NAMESPACE = "local";
+	private static final String REMOTE_NAMESPACE_PREFIX = "remote:";
+
+	private SettingStores() {
+	}
+
+	/**
+	 * @return request cache, then local vault
+	 */
+	public static SettingStore local() {
+		List<SettingStore> tiers = VaultCollections.newList();
+		tiers.add(localCache());
+		tiers.add(new LocalSettingStore());
+		return new TieredSettingStore(tiers);
+	}
+
+	/**
+	 * @return the request cache tier of the local settings
+	 */
+	public static RequestCacheSettingStore localCache() {
+		return new RequestCacheSettingStore(LOCAL_NAMESPACE);
+	}
+
+	/**
+	 * @param connectionName name of the remote connection
+	 *
+	 * @return request cache, then local mirror, then remote vault
+	 */
+	public static SettingStore remote(String connectionName) {
+		List<SettingStore> tiers = VaultCollections.newList();
+		tiers.add(remoteCache(connectionName));
+		tiers.add(new MirrorSettingStore(connectionName));
+		tiers.add(new RemoteSettingStore(connectionName));
+		return new TieredSettingStore(tiers);
+	}
+
+	/**
+	 * @param connectionName name of the remote connection
+	 *
+	 * @return the request cache tier of the remote settings
+	 */
+	public static SettingStore remoteCache(String connectionName) {
+		return new RequestCacheSettingStore(REMOTE_NAMESPACE_PREFIX + connectionName);
+	}
+}
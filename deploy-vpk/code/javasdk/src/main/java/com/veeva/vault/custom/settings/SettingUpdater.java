@@ -0,0 +1,33 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingUpdater
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The modify step of a read-modify-write settings
+ * 				update.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.UserDefinedModel;
+
+/**
+ * Applies a change to the current settings. May be called more than once if saves conflict.
+ */
+@UserDefinedClassInfo
+public interface SettingUpdater<U extends UserDefinedModel> {
+	/**
+	 * @param currentSettings the stored settings, or null if none are stored
+	 *
+	 * @return the settings to save
+	 */
+	U update(U currentSettings);
+}
@@ -0,0 +1,103 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	TieredSettingStore
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Read-through/write-through composition of settings
+ * 				stores, ordered from fastest to authoritative.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads ask each tier in order for the names still missing, and fill the faster tiers with what a slower tier returned.
+ * A delta the authoritative tier does not hold is returned, and filled in, as an empty patch,
+ * so the next read of the setting stops at a faster tier instead of looking for the delta again.
+ * Writes go to the authoritative (last) tier first; the faster tiers are only written once it stored the settings,
+ * so a failed save never leaves a faster tier ahead of the authoritative one.
+ */
+@UserDefinedClassInfo
+public class TieredSettingStore implements SettingStore {
+
+	private final List<SettingStore> tiers;
+
+	/**
+	 * @param tiers stores ordered from fastest to authoritative
+	 */
+	public TieredSettingStore(List<SettingStore> tiers) {
+		this.tiers = tiers;
+	}
+
+	public Map<String, String> read(List<String> settingNames) {
+		Map<String, String> results = VaultCollections.newMap();
+		List<String> missingNames = settingNames;
+
+		for (int i = 0; i < tiers.size() && !missingNames.isEmpty(); i++) {
+			Map<String, String> tierResults = tiers.get(i).read(missingNames);
+			if (i == tiers.size() - 1) {
+				addEmptyPatches(settingNames, missingNames, results, tierResults);
+			}
+			if (tierResults.isEmpty()) {
+				continue;
+			}
+
+			results.putAll(tierResults);
+
+			// Backfill the faster tiers
+			for (int j = 0; j < i; j++) {
+				tiers.get(j).write(tierResults);
+			}
+
+			List<String> stillMissing = VaultCollections.newList();
+			for (String settingName : missingNames) {
+				if (!results.containsKey(settingName)) {
+					stillMissing.add(settingName);
+				}
+			}
+			missingNames = stillMissing;
+		}
+
+		return results;
+	}
+
+	/**
+	 * Adds an empty patch for each requested delta of a found setting that no tier holds
+	 *
+	 * @param settingNames the requested record names
+	 * @param missingNames the names the authoritative tier was asked for
+	 * @param results JSON found in the faster tiers
+	 * @param tierResults JSON found in the authoritative tier, updated in place
+	 */
+	private static void addEmptyPatches(List<String> settingNames, List<String> missingNames, Map<String, String> results,
+			Map<String, String> tierResults) {
+		for (String settingName : settingNames) {
+			String deltaName = SettingDescriptor.getDeltaName(settingName);
+			if ((results.containsKey(settingName) || tierResults.containsKey(settingName))
+					&& missingNames.contains(deltaName) && !tierResults.containsKey(deltaName)) {
+				tierResults.put(deltaName, SettingJson.EMPTY_OBJECT);
+			}
+		}
+	}
+
+	public boolean write(Map<String, String> jsonByName) {
+		for (int i = tiers.size() - 1; i >= 0; i--) {
+			if (!tiers.get(i).write(jsonByName)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * --------------------------------------------------------------------
+ * Job:			ExampleResultsBackfillJob
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The job recalculates results__c on vsdk_udm_example__c
+ * 				records whose status is one of the status_types in
+ * 				ExampleSettings, streaming the records and saving
+ * 				them in batch_size chunks.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.jobs;
+
+import com.veeva.vault.custom.settings.AdaptiveBatchSizer;
+import com.veeva.vault.custom.settings.CustomSettingService;
+import com.veeva.vault.custom.settings.ExampleSettings;
+import com.veeva.vault.custom.settings.ExampleSettingsSnapshot;
+import com.veeva.vault.custom.settings.SettingDefaults;
+import com.veeva.vault.custom.settings.SettingQueries;
+import com.veeva.vault.sdk.api.core.*;
+import com.veeva.vault.sdk.api.data.Record;
+import com.veeva.vault.sdk.api.data.RecordService;
+import com.veeva.vault.sdk.api.job.*;
+import com.veeva.vault.sdk.api.json.JsonService;
+import com.veeva.vault.sdk.api.query.QueryResponse;
+import com.veeva.vault.sdk.api.query.QueryResult;
+import com.veeva.vault.sdk.api.query.QueryService;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class annotation (@JobInfo) indicates that this class is an SDK Job.
+ * The query results are streamed, so only one chunk of records is held in memory.
+ * Each chunk is saved with a single batchSaveRecords call; the chunk size starts at the
+ * learned batch size and adapts to the observed save time, never exceeding batch_size.
+ */
+@JobInfo(adminConfigurable = true)
+public class ExampleResultsBackfillJob implements Job {
+
+	private static final String OBJECT_NAME = "vsdk_udm_example__c";
+	private static final String OBJECT_FIELD_ID = "id";
+	private static final String OBJECT_FIELD_RESULTS = "results__c";
+	private static final String OBJECT_FIELD_STATUS = "status__v";
+	private static final String OBJECT_FIELD_REMOTE_CONNECTION_NAME = "remote_connection__cr.api_name__sys";
+	private static final String ITEM_OBJECT_NAME = "object_name";
+
+	/**
+	 * Creates a single job item; the records are streamed in process, not materialized here
+	 */
+	public JobInputSupplier init(JobInitContext jobInitContext) {
+		JobItem jobItem = jobInitContext.newJobItem();
+		jobItem.setValue(ITEM_OBJECT_NAME, OBJECT_NAME);
+		return jobInitContext.newJobInput(VaultCollections.asList(jobItem));
+	}
+
+	/**
+	 * Streams the matching records and saves their results one chunk at a time
+	 */
+	public void process(JobProcessContext jobProcessContext) {
+		JobLogger logger = jobProcessContext.getJobLogger();
+		JobTask task = jobProcessContext.getCurrentTask();
+
+		CustomSettingService settingService = ServiceLocator.locate(CustomSettingService.class);
+		ExampleSettings settings = settingService.getScopedSettings(ExampleSettings.class, OBJECT_NAME, null);
+		List<String> statusTypes = settings == null ? null : settings.getStatusTypes();
+
+		if (statusTypes == null || statusTypes.isEmpty()) {
+			logger.log("No status_types configured; nothing to process");
+		} else {
+			// Settings without a batch size fall back to the bundled defaults
+			int defaultBatchSize = getDefaultSettings().getBatchSize().intValue();
+			ExampleSettingsSnapshot localSnapshot = ExampleSettingsSnapshot.of(settings, defaultBatchSize);
+			AdaptiveBatchSizer batchSizer = AdaptiveBatchSizer.fromSettings(settings);
+			Map<String, ExampleSettingsSnapshot> remoteSnapshots = VaultCollections.newMap();
+
+			int processed = 0;
+			int failed = 0;
+			List<Record> chunk = VaultCollections.newList();
+			Iterator<QueryResult> results = queryRecords(statusTypes).streamResults().iterator();
+			while (results.hasNext()) {
+				chunk.add(toResultsRecord(results.next(), localSnapshot, remoteSnapshots, defaultBatchSize));
+
+				if (chunk.size() >= batchSizer.getBatchSize() || !results.hasNext()) {
+					long startMillis = System.currentTimeMillis();
+					int chunkErrors = saveChunk(chunk, logger);
+					batchSizer.recordBatch(System.currentTimeMillis() - startMillis, chunkErrors);
+
+					processed += chunk.size() - chunkErrors;
+					failed += chunkErrors;
+					chunk = VaultCollections.newList();
+				}
+			}
+
+			batchSizer.persist(settingService);
+			logger.log("Updated results on " + processed + " record(s), " + failed + " failed");
+		}
+
+		task.getTaskOutput().setState(TaskState.SUCCESS);
+	}
+
+	public void completeWithSuccess(JobCompletionContext jobCompletionContext) {
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("Results backfill complete");
+	}
+
+	public void completeWithError(JobCompletionContext jobCompletionContext) {
+		JobResult result = jobCompletionContext.getJobResult();
+		JobLogger logger = jobCompletionContext.getJobLogger();
+		logger.log("completeWithError: " + result.getNumberFailedTasks() + " tasks failed out of " + result.getNumberTasks());
+	}
+
+	/**
+	 * Queries the records with one of the configured status types
+	 *
+	 * @return QueryResponse
+	 */
+	QueryResponse queryRecords(List<String> statusTypes) {
+		StringBuilder query = new StringBuilder();
+		query.append("SELECT ").append(OBJECT_FIELD_ID).append(", ").append(OBJECT_FIELD_REMOTE_CONNECTION_NAME);
+		query.append(" FROM ").append(OBJECT_NAME);
+		query.append(" WHERE ").append(OBJECT_FIELD_STATUS).append(" CONTAINS (");
+		for (int i = 0; i < statusTypes.size(); i++) {
+			if (i > 0) {
+				query.append(",");
+			}
+			query.append(SettingQueries.quote(statusTypes.get(i)));
+		}
+		query.append(")");
+
+		QueryService queryService = ServiceLocator.locate(QueryService.class);
+		return queryService.query(query.toString());
+	}
+
+	/**
+	 * Gets the example settings bundled in SettingDefaults, generated from javasdk/settings-defaults
+	 *
+	 * @return ExampleSettings
+	 */
+	ExampleSettings getDefaultSettings() {
+		JsonService jsonService = ServiceLocator.locate(JsonService.class);
+		return jsonService.convertToUserDefinedModel(SettingDefaults.getJson(ExampleSettings.class.getName()), ExampleSettings.class);
+	}
+
+	/**
+	 * Builds a record holding only the id and the recalculated results
+	 *
+	 * @return Record
+	 */
+	Record toResultsRecord(QueryResult queryResult,
+						   ExampleSettingsSnapshot localSnapshot,
+						   Map<String, ExampleSettingsSnapshot> remoteSnapshots,
+						   int defaultBatchSize) {
+		StringBuilder results = new StringBuilder();
+		results.append("<B>Local Batch Size<B>: ");
+		results.append(localSnapshot.getBatchSize());
+
+		String remoteConnectionName = queryResult.getValue(OBJECT_FIELD_REMOTE_CONNECTION_NAME, ValueType.STRING);
+		if (remoteConnectionName != null) {
+			ExampleSettingsSnapshot remoteSnapshot = remoteSnapshots.get(remoteConnectionName);
+			if (remoteSnapshot == null) {
+				CustomSettingService settingService = ServiceLocator.locate(CustomSettingService.class);
+				remoteSnapshot = ExampleSettingsSnapshot.of(
+						settingService.getRemoteSettings(ExampleSettings.class, remoteConnectionName), defaultBatchSize);
+				remoteSnapshots.put(remoteConnectionName, remoteSnapshot);
+			}
+
+			results.append("<BR> ");
+			results.append("<B>Remote Batch Size<B>: ");
+			results.append(remoteSnapshot.getBatchSize());
+		}
+
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		Record record = recordService.newRecordWithId(OBJECT_NAME, queryResult.getValue(OBJECT_FIELD_ID, ValueType.STRING));
+		record.setValue(OBJECT_FIELD_RESULTS, results.toString());
+		return record;
+	}
+
+	/**
+	 * Saves a chunk of records with a single batch save.
+	 * Failed records are logged and do not roll back the rest of the chunk.
+	 *
+	 * @return the number of records that failed to save
+	 */
+	int saveChunk(List<Record> chunk, JobLogger logger) {
+		List<Integer> errorCount = VaultCollections.newList();
+		errorCount.add(0);
+
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		recordService.batchSaveRecords(chunk)
+				.onErrors(batchOperationErrors -> {
+					batchOperationErrors.forEach(error -> {
+						Record record = chunk.get(error.getInputPosition());
+						logger.log("Failed to update " + record.getValue(OBJECT_FIELD_ID, ValueType.STRING)
+								+ ": " + error.getError().getMessage());
+					});
+					errorCount.set(0, batchOperationErrors.size());
+				})
+				.execute();
+
+		return errorCount.get(0);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	MirrorSettingStore
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Settings store of local copies of a remote vault's
+ * 				settings, stamped with the time they were fetched.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.data.Record;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Local mirror tier for a single connection.
+ * Mirror records are named <setting name>@mirror:<connection name>.
+ * Copies older than the maximum age are ignored, so reads fall through to the remote vault.
+ * Empty deltas are kept as well, so a fresh mirror also answers that a setting has no pending patch.
+ */
+@UserDefinedClassInfo
+public class MirrorSettingStore extends LocalSettingStore {
+
+	static final String OBJECT_FIELD_FETCHED_DATE = "fetched_date__c";
+	private static final String MIRROR_SEPARATOR = "@mirror:";
+	private static final long MAX_AGE_HOURS = 24;
+	private static final DateTimeFormatter VQL_DATETIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+	private final String connectionName;
+
+	/**
+	 * @param connectionName name of the remote connection
+	 */
+	public MirrorSettingStore(String connectionName) {
+		this.connectionName = connectionName;
+	}
+
+	/**
+	 * @param recordName a vsdk_setting__c record name
+	 *
+	 * @return true if the record is a local copy of remote settings
+	 */
+	public static boolean isMirrorRecordName(String recordName) {
+		return recordName.contains(MIRROR_SEPARATOR);
+	}
+
+	@Override
+	protected String toRecordName(String settingName) {
+		return settingName + MIRROR_SEPARATOR + connectionName;
+	}
+
+	@Override
+	protected void appendReadCriteria(StringBuilder query) {
+		ZonedDateTime oldestFetchedDate = ZonedDateTime.now(ZoneOffset.UTC).minusHours(MAX_AGE_HOURS);
+		query.append(" AND " + OBJECT_FIELD_FETCHED_DATE + " >= '");
+		query.append(oldestFetchedDate.format(VQL_DATETIME_FORMAT));
+		query.append("'");
+	}
+
+	@Override
+	protected void beforeSave(Record record) {
+		record.setValue(OBJECT_FIELD_FETCHED_DATE, ZonedDateTime.now(ZoneOffset.UTC));
+	}
+
+	@Override
+	protected boolean createsEmptyRecords() {
+		return true;
+	}
+
+	@Override
+	protected boolean readsOperations() {
+		return false;
+	}
+}
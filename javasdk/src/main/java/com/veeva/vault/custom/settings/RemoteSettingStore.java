@@ -0,0 +1,582 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	RemoteSettingStore
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Settings store backed by vsdk_setting__c records in
+ * 				a remote vault, using the HttpService.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.LogService;
+import com.veeva.vault.sdk.api.core.RollbackException;
+import com.veeva.vault.sdk.api.core.ServiceLocator;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.UserDefinedModelService;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+import com.veeva.vault.sdk.api.http.HttpMethod;
+import com.veeva.vault.sdk.api.http.HttpRequest;
+import com.veeva.vault.sdk.api.http.HttpResponseBodyValueType;
+import com.veeva.vault.sdk.api.http.HttpService;
+import com.veeva.vault.sdk.api.json.JsonArray;
+import com.veeva.vault.sdk.api.json.JsonObject;
+import com.veeva.vault.sdk.api.json.JsonValueType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Remote vault tier for a single connection.
+ * Settings are always written inline; records in the remote vault that only hold a json_hash__c
+ * are resolved from the remote payload:<hash> records on read.
+ * Reads by name only select name__v and json__c, so vaults without the later vsdk_setting__c fields can be read;
+ * A failed read is logged and returns no settings, so readers fall back to their defaults;
+ * refreshes use tryRead, so a failed read is never mirrored as settings that do not exist.
+ * Writes to a connection that could not be read in the same request are refused, so defaults saved for settings
+ * that only looked missing never overwrite the remote settings.
+ */
+@UserDefinedClassInfo
+public class RemoteSettingStore implements SettingStore {
+
+	static final String API_VERSION = "v21.2";
+	private static final String QUERY_ID_PARAM = "idParam";
+	private static final int MAX_NAMES_PER_QUERY = 100;
+	private static final String RESPONSE_STATUS = "responseStatus";
+	private static final String RESPONSE_STATUS_SUCCESS = "SUCCESS";
+	private static final String RESPONSE_DATA = "data";
+	private static final String ERROR_QUERY_FAILED = "REMOTE_SETTINGS_QUERY_FAILED";
+
+	private final String connectionName;
+
+	/**
+	 * @param connectionName name of the remote connection
+	 */
+	public RemoteSettingStore(String connectionName) {
+		this.connectionName = connectionName;
+	}
+
+	public Map<String, String> read(List<String> settingNames) {
+		Map<String, String> results = tryRead(settingNames);
+		if (results == null) {
+			ServiceLocator.locate(LogService.class).error("Settings could not be read from connection " + connectionName);
+			SettingRequestCache.get().putUnreadConnection(connectionName);
+			return VaultCollections.newMap();
+		}
+		return results;
+	}
+
+	/**
+	 * Reads settings by record name, telling a failed read apart from settings that do not exist
+	 *
+	 * @param settingNames the vsdk_setting__c record names
+	 *
+	 * @return JSON by record name, or null if a query failed
+	 */
+	public Map<String, String> tryRead(List<String> settingNames) {
+		Map<String, String> results = VaultCollections.newMap();
+		List<String> namesWithoutJson = VaultCollections.newList();
+		boolean success = queryByName(SettingQueries.NAME_JSON_QUERY, settingNames, (recordName, settingRecord) -> {
+			String json = getString(settingRecord, LocalSettingStore.OBJECT_FIELD_JSON);
+			if (json != null) {
+				results.put(recordName, json);
+			} else {
+				namesWithoutJson.add(recordName);
+			}
+		});
+		if (!success || !resolveHashes(namesWithoutJson, results)) {
+			return null;
+		}
+		return results;
+	}
+
+	/**
+	 * Queries settings by record name.
+	 * All names are sent in one query, split only when the name list is long.
+	 * Only the newest record of each name is passed on.
+	 *
+	 * @param template one of the SettingQueries.NAME_ templates, which only select fields every vsdk_setting__c has
+	 * @param recordNames the vsdk_setting__c record names
+	 * @param recordConsumer receives the record name and the record
+	 *
+	 * @return false if a query failed
+	 */
+	private boolean queryByName(String template, List<String> recordNames, BiConsumer<String, JsonObject> recordConsumer) {
+		Set<String> foundNames = VaultCollections.newSet();
+		boolean success = true;
+		for (int start = 0; start < recordNames.size(); start += MAX_NAMES_PER_QUERY) {
+			List<String> chunk = recordNames.subList(start, Math.min(start + MAX_NAMES_PER_QUERY, recordNames.size()));
+			success &= query(SettingQueries.build(template, chunk) + SettingQueries.ORDER_BY_NEWEST, settingRecord -> {
+				String recordName = getString(settingRecord, LocalSettingStore.OBJECT_FIELD_NAME);
+				if (recordName != null && foundNames.add(recordName)) {
+					recordConsumer.accept(recordName, settingRecord);
+				}
+			});
+		}
+		return success;
+	}
+
+	/**
+	 * Adds the remote payloads of records without inline JSON to the results.
+	 * json_hash__c is only queried for these records, so vaults whose vsdk_setting__c has no json_hash__c are read without it.
+	 *
+	 * @param namesWithoutJson names of the records without inline JSON
+	 * @param results JSON by record name
+	 *
+	 * @return false if a query failed
+	 */
+	private boolean resolveHashes(List<String> namesWithoutJson, Map<String, String> results) {
+		if (namesWithoutJson.isEmpty()) {
+			return true;
+		}
+
+		Map<String, String> hashByName = VaultCollections.newMap();
+		boolean success = queryByName(SettingQueries.NAME_HASH_QUERY, namesWithoutJson, (recordName, settingRecord) -> {
+			String hash = getString(settingRecord, LocalSettingStore.OBJECT_FIELD_JSON_HASH);
+			if (hash != null) {
+				hashByName.put(recordName, hash);
+			}
+		});
+		return success && resolvePayloads(hashByName, results);
+	}
+
+	/**
+	 * Adds the remote payloads of records that only hold a hash to the results
+	 *
+	 * @param hashByName content hash by record name
+	 * @param results JSON by record name
+	 *
+	 * @return false if a query failed
+	 */
+	private boolean resolvePayloads(Map<String, String> hashByName, Map<String, String> results) {
+		if (hashByName.isEmpty()) {
+			return true;
+		}
+
+		Set<String> payloadNames = VaultCollections.newSet();
+		for (String hash : hashByName.values()) {
+			payloadNames.add(LocalSettingStore.getPayloadRecordName(hash));
+		}
+		List<String> recordNames = VaultCollections.newList();
+		recordNames.addAll(payloadNames);
+
+		Map<String, String> payloadByName = VaultCollections.newMap();
+		boolean success = queryByName(SettingQueries.NAME_JSON_QUERY, recordNames, (recordName, settingRecord) -> {
+			String json = getString(settingRecord, LocalSettingStore.OBJECT_FIELD_JSON);
+			if (json != null) {
+				payloadByName.put(recordName, json);
+			}
+		});
+		for (Map.Entry<String, String> entry : hashByName.entrySet()) {
+			String json = payloadByName.get(LocalSettingStore.getPayloadRecordName(entry.getValue()));
+			if (json != null) {
+				results.put(entry.getKey(), json);
+			}
+		}
+		return success;
+	}
+
+	/**
+	 * Sends a VQL query to the remote vault and passes each record of the response to the consumer
+	 *
+	 * @param query the VQL query
+	 * @param recordConsumer receives each record, in the order of the response
+	 *
+	 * @return false if the query failed
+	 */
+	private boolean query(String query, Consumer<JsonObject> recordConsumer) {
+		// Get an instance of the HTTPService which is used to make HTTP calls
+		HttpService httpService = ServiceLocator.locate(HttpService.class);
+		LogService logService = ServiceLocator.locate(LogService.class);
+
+		// Make a VQL query against the remote vault
+		HttpRequest queryRequest = httpService.newHttpRequest(connectionName);
+		queryRequest.appendPath("/api/" + API_VERSION + "/query");
+		queryRequest.setBodyParam("q", query);
+		SettingSpan span = SettingTracer.startSpan("RemoteSettingStore.query", SettingTracer.CATEGORY_HTTP)
+				.setAttribute("connection_name", connectionName)
+				.setAttribute("payload_size", query.length());
+		List<Integer> recordCount = VaultCollections.newList();
+		// Send the HTTP request and read the settings straight out of the parsed response body
+		// The response is not mapped to SettingRecordModels, so json__c is read once, straight from the parsed records
+		try {
+			httpService.send(queryRequest, HttpResponseBodyValueType.JSONDATA)
+					.onError(response -> {
+						// If an error occurs, log the error using the LogService
+						logService.error(response.getMessage());
+					})
+					.onSuccess(response -> {
+						JsonObject responseBody = response.getResponseBody().getJsonObject();
+						if (!RESPONSE_STATUS_SUCCESS.equals(getString(responseBody, RESPONSE_STATUS))) {
+							logService.error(responseBody.asString());
+							return;
+						}
+						if (!responseBody.contains(RESPONSE_DATA) || responseBody.isNullValue(RESPONSE_DATA)) {
+							recordCount.add(0);
+							return;
+						}
+
+						JsonArray data = responseBody.getValue(RESPONSE_DATA, JsonValueType.ARRAY);
+						for (int i = 0; i < data.getSize(); i++) {
+							recordConsumer.accept(data.getValue(i, JsonValueType.OBJECT));
+						}
+						recordCount.add(data.getSize());
+					})
+					.execute();
+		} finally {
+			span.setAttribute("record_count", recordCount.isEmpty() ? 0 : recordCount.get(0));
+			span.end();
+		}
+		return !recordCount.isEmpty();
+	}
+
+	/**
+	 * Checks whether vsdk_setting__c in the remote vault has json_hash__c, with a query that selects it.
+	 * The answer is cached for the rest of the request, so the check costs one query per connection.
+	 *
+	 * @return false if the field is missing or the query failed
+	 */
+	private boolean hasJsonHashField() {
+		SettingRequestCache cache = SettingRequestCache.get();
+		Boolean hasField = cache.getJsonHashField(connectionName);
+		if (hasField == null) {
+			hasField = query("SELECT " + LocalSettingStore.OBJECT_FIELD_JSON_HASH + " FROM " + LocalSettingStore.OBJECT_SDK_SETTING + " LIMIT 1",
+					settingRecord -> {});
+			cache.putJsonHashField(connectionName, hasField);
+		}
+		return hasField;
+	}
+
+	/**
+	 * @return the string value of a property, or null if it is absent or null
+	 */
+	private static String getString(JsonObject jsonObject, String name) {
+		if (!jsonObject.contains(name) || jsonObject.isNullValue(name)) {
+			return null;
+		}
+		return jsonObject.getValue(name, JsonValueType.STRING);
+	}
+
+	public boolean write(Map<String, String> jsonByName) {
+		if (jsonByName.isEmpty()) {
+			return true;
+		}
+		if (SettingRequestCache.get().isUnreadConnection(connectionName)) {
+			ServiceLocator.locate(LogService.class).error("Settings were not saved to connection " + connectionName
+					+ ", as they could not be read from it in this request");
+			return false;
+		}
+
+		return upsert(withoutNewEmptyRecords(toRecordModels(jsonByName))).isSuccess();
+	}
+
+	/**
+	 * Leaves out the empty patches that have no record in the remote vault.
+	 * As in LocalSettingStore.write, empty patches are only used to clear an existing record, so no record is created for them.
+	 * If the remote records cannot be queried, every patch is kept.
+	 *
+	 * @param remoteSettingModels the records to upsert
+	 *
+	 * @return the records to upsert; the same list if there are no empty patches
+	 */
+	public List<SettingRecordModel> withoutNewEmptyRecords(List<SettingRecordModel> remoteSettingModels) {
+		List<String> emptyNames = VaultCollections.newList();
+		for (SettingRecordModel remoteSettingModel : remoteSettingModels) {
+			if (SettingJson.isEmptyObject(remoteSettingModel.getJson())) {
+				emptyNames.add(remoteSettingModel.getName());
+			}
+		}
+		if (emptyNames.isEmpty()) {
+			return remoteSettingModels;
+		}
+
+		Set<String> existingNames = VaultCollections.newSet();
+		if (!queryByName(SettingQueries.NAME_QUERY, emptyNames, (recordName, settingRecord) -> existingNames.add(recordName))) {
+			return remoteSettingModels;
+		}
+
+		List<SettingRecordModel> results = VaultCollections.newList();
+		for (SettingRecordModel remoteSettingModel : remoteSettingModels) {
+			if (!SettingJson.isEmptyObject(remoteSettingModel.getJson()) || existingNames.contains(remoteSettingModel.getName())) {
+				results.add(remoteSettingModel);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Builds the request body models for an upsert
+	 *
+	 * @param jsonByName JSON by record name
+	 *
+	 * @return a SettingRecordModel per record
+	 */
+	public static List<SettingRecordModel> toRecordModels(Map<String, String> jsonByName) {
+		UserDefinedModelService modelService = ServiceLocator.locate(UserDefinedModelService.class);
+
+		// Use the UserDefinedModelService to create a SettingRecordModel for each name and set the json in it
+		List<SettingRecordModel> remoteSettingModels = VaultCollections.newList();
+		for (Map.Entry<String, String> entry : jsonByName.entrySet()) {
+			SettingRecordModel remoteSettingModel = modelService.newUserDefinedModel(SettingRecordModel.class);
+			remoteSettingModel.setName(entry.getKey());
+			remoteSettingModel.setJson(entry.getValue());
+			remoteSettingModel.setJsonHash(SettingHash.of(entry.getValue()));
+			remoteSettingModels.add(remoteSettingModel);
+		}
+		return remoteSettingModels;
+	}
+
+	/**
+	 * Upserts setting records in the remote vault by name, in a single request
+	 *
+	 * @param remoteSettingModels the records to upsert
+	 *
+	 * @return the outcome of the request
+	 */
+	public RemoteSaveOutcome upsert(List<SettingRecordModel> remoteSettingModels) {
+		if (remoteSettingModels.isEmpty()) {
+			return RemoteSaveOutcome.success();
+		}
+
+		// vsdk_setting__c in vaults set up before hashes were stored has no json_hash__c, and the upsert would fail on it
+		if (!hasJsonHashField()) {
+			for (SettingRecordModel remoteSettingModel : remoteSettingModels) {
+				remoteSettingModel.setJsonHash(null);
+			}
+		}
+
+		HttpService httpService = ServiceLocator.locate(HttpService.class);
+		LogService logService = ServiceLocator.locate(LogService.class);
+		List<RemoteSaveOutcome> outcomes = VaultCollections.newList();
+
+		// Using the HTTPService, upsert the setting records in the remote vault by name
+		HttpRequest updateRequest = httpService.newHttpRequest(connectionName);
+		updateRequest.setQuerystringParam(QUERY_ID_PARAM, LocalSettingStore.OBJECT_FIELD_NAME);
+		updateRequest.setMethod(HttpMethod.POST);
+		updateRequest.appendPath("/api/" + API_VERSION + "/vobjects/" + LocalSettingStore.OBJECT_SDK_SETTING);
+		updateRequest.setBody(remoteSettingModels);
+		SettingSpan span = SettingTracer.startSpan("RemoteSettingStore.upsert", SettingTracer.CATEGORY_HTTP)
+				.setAttribute("connection_name", connectionName)
+				.setAttribute("record_count", remoteSettingModels.size());
+		if (span.isActive()) {
+			long payloadSize = 0;
+			for (SettingRecordModel remoteSettingModel : remoteSettingModels) {
+				payloadSize += remoteSettingModel.getJson() == null ? 0 : remoteSettingModel.getJson().length();
+			}
+			span.setAttribute("payload_size", payloadSize);
+		}
+		try {
+			httpService.send(updateRequest, HttpResponseBodyValueType.JSONDATA)
+					.onError(response -> {
+						// Log error message using the logService
+						logService.error(response.getMessage());
+						outcomes.add(RemoteSaveOutcome.failure(response.getMessage()));
+					})
+					.onSuccess(response -> {
+						// Log response body json using the logService
+						JsonObject responseBody = response.getResponseBody().getJsonObject();
+						logService.info(responseBody.asString());
+						if (RESPONSE_STATUS_SUCCESS.equals(getString(responseBody, RESPONSE_STATUS)) && isEveryRecordSaved(responseBody)) {
+							outcomes.add(RemoteSaveOutcome.success());
+						} else {
+							outcomes.add(RemoteSaveOutcome.failure(responseBody.asString()));
+						}
+					})
+					.execute();
+		} finally {
+			span.end();
+		}
+
+		return outcomes.isEmpty() ? RemoteSaveOutcome.failure("No response") : outcomes.get(0);
+	}
+
+	/**
+	 * A bulk upsert reports SUCCESS at the top level even when single records fail,
+	 * so the status of every record in the data array is checked as well.
+	 *
+	 * @param responseBody the upsert response
+	 *
+	 * @return true if no record in the response failed
+	 */
+	private static boolean isEveryRecordSaved(JsonObject responseBody) {
+		if (!responseBody.contains(RESPONSE_DATA) || responseBody.isNullValue(RESPONSE_DATA)) {
+			return true;
+		}
+
+		JsonArray data = responseBody.getValue(RESPONSE_DATA, JsonValueType.ARRAY);
+		for (int i = 0; i < data.getSize(); i++) {
+			JsonObject recordResult = data.getValue(i, JsonValueType.OBJECT);
+			if (!RESPONSE_STATUS_SUCCESS.equals(getString(recordResult, RESPONSE_STATUS))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Streams every settings record in the remote vault, one VQL page at a time.
+	 * Only one page is held in memory, regardless of the number of records.
+	 * Payload records, version claims and logged operations are skipped; records that point at payloads are resolved before the page is passed on.
+	 *
+	 * @param pageSize maximum number of settings per page
+	 * @param pageConsumer receives JSON by record name for each page
+	 *
+	 * @return true if every page was read; false if a page request failed, so the pages passed on are incomplete
+	 */
+	public boolean readAll(int pageSize, Consumer<Map<String, String>> pageConsumer) {
+		String query = "SELECT " + LocalSettingStore.OBJECT_FIELD_NAME
+				+ ", " + LocalSettingStore.OBJECT_FIELD_JSON_HASH
+				+ ", LONGTEXT(" + LocalSettingStore.OBJECT_FIELD_JSON + ")"
+				+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING
+				+ " PAGESIZE " + pageSize;
+
+		return queryAllPages(query, settingRecords -> {
+			Map<String, String> page = VaultCollections.newMap();
+			Map<String, String> hashByName = VaultCollections.newMap();
+			for (SettingRecordModel remoteSettingModel : settingRecords) {
+				String recordName = remoteSettingModel.getName();
+				if (LocalSettingStore.isPayloadRecordName(recordName) || LocalSettingStore.isVersionClaimRecordName(recordName)
+						|| SettingOperationLog.isOperationRecordName(recordName)) {
+					continue;
+				}
+				if (remoteSettingModel.getJson() != null) {
+					page.put(recordName, remoteSettingModel.getJson());
+				} else if (remoteSettingModel.getJsonHash() != null) {
+					hashByName.put(recordName, remoteSettingModel.getJsonHash());
+				}
+			}
+
+			resolvePayloads(hashByName, page);
+			if (!page.isEmpty()) {
+				pageConsumer.accept(page);
+			}
+		});
+	}
+
+	/**
+	 * Reads the content hash of every setting in the remote vault, without the JSON.
+	 * Only the records of settings themselves are returned, see SettingDescriptor.isSettingRecordName.
+	 *
+	 * @return json_hash__c by record name; the hash is null for records saved before hashes were stored
+	 */
+	public Map<String, String> readHashes() {
+		Map<String, String> hashByName = VaultCollections.newMap();
+		String query = "SELECT " + LocalSettingStore.OBJECT_FIELD_NAME
+				+ ", " + LocalSettingStore.OBJECT_FIELD_JSON_HASH
+				+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING;
+
+		boolean complete = queryAllPages(query, settingRecords -> {
+			for (SettingRecordModel remoteSettingModel : settingRecords) {
+				String recordName = remoteSettingModel.getName();
+				if (SettingDescriptor.isSettingRecordName(recordName)) {
+					hashByName.put(recordName, remoteSettingModel.getJsonHash());
+				}
+			}
+		});
+		// Missing hashes would be reported as divergent settings
+		if (!complete) {
+			throw new RollbackException(ERROR_QUERY_FAILED, "Setting hashes could not be read from connection " + connectionName);
+		}
+		return hashByName;
+	}
+
+	/**
+	 * Runs a VQL query against the remote vault and follows the next_page links until the last page
+	 *
+	 * @param query the VQL query
+	 * @param pageConsumer receives the records of each page
+	 *
+	 * @return true if every page was read, false if a page request failed and the remaining pages were not read
+	 */
+	private boolean queryAllPages(String query, Consumer<List<SettingRecordModel>> pageConsumer) {
+		HttpService httpService = ServiceLocator.locate(HttpService.class);
+		List<String> errors = VaultCollections.newList();
+
+		HttpRequest queryRequest = httpService.newHttpRequest(connectionName);
+		queryRequest.appendPath("/api/" + API_VERSION + "/query");
+		queryRequest.setBodyParam("q", query);
+		String nextPage = sendPageRequest(queryRequest, pageConsumer, errors);
+
+		// Follow the next_page links until the last page
+		while (nextPage != null) {
+			HttpRequest pageRequest = httpService.newHttpRequest(connectionName);
+			pageRequest.setMethod(HttpMethod.GET);
+			int querystringStart = nextPage.indexOf('?');
+			if (querystringStart < 0) {
+				pageRequest.appendPath(nextPage);
+			} else {
+				pageRequest.appendPath(nextPage.substring(0, querystringStart));
+				for (String param : nextPage.substring(querystringStart + 1).split("&")) {
+					int separator = param.indexOf('=');
+					if (separator > 0) {
+						pageRequest.setQuerystringParam(param.substring(0, separator), param.substring(separator + 1));
+					}
+				}
+			}
+			nextPage = sendPageRequest(pageRequest, pageConsumer, errors);
+		}
+		return errors.isEmpty();
+	}
+
+	/**
+	 * Sends one query page request and passes the records of the page to the consumer.
+	 * The consumer runs after the response is handled, so it may send further requests.
+	 *
+	 * @param errors receives the error message if the request or the query failed
+	 *
+	 * @return the next_page path, or null on the last page or on error
+	 */
+	private String sendPageRequest(HttpRequest request, Consumer<List<SettingRecordModel>> pageConsumer, List<String> errors) {
+		HttpService httpService = ServiceLocator.locate(HttpService.class);
+		LogService logService = ServiceLocator.locate(LogService.class);
+		List<String> nextPage = VaultCollections.newList();
+		List<SettingRecordModel> settingRecords = VaultCollections.newList();
+
+		SettingSpan span = SettingTracer.startSpan("RemoteSettingStore.queryPage", SettingTracer.CATEGORY_HTTP)
+				.setAttribute("connection_name", connectionName);
+		try {
+			httpService.send(request, SettingQueryResponseModel.class)
+					.onError(response -> {
+						// If an error occurs, log the error using the LogService
+						logService.error(response.getMessage());
+						errors.add(response.getMessage());
+					})
+					.onSuccess(response -> {
+						SettingQueryResponseModel responseModel = response.getResponseBody();
+						if (responseModel == null || !RESPONSE_STATUS_SUCCESS.equals(responseModel.getResponseStatus())) {
+							logService.error("Settings query page failed on connection {}", connectionName);
+							errors.add("Settings query page failed on connection " + connectionName);
+							return;
+						}
+						if (responseModel.getData() == null) {
+							return;
+						}
+
+						settingRecords.addAll(responseModel.getData());
+						SettingQueryResponseDetailsModel responseDetails = responseModel.getResponseDetails();
+						if (responseDetails != null && responseDetails.getNextPage() != null) {
+							nextPage.add(responseDetails.getNextPage());
+						}
+					})
+					.execute();
+		} finally {
+			span.setAttribute("record_count", settingRecords.size());
+			span.end();
+		}
+
+		if (!settingRecords.isEmpty()) {
+			pageConsumer.accept(settingRecords);
+		}
+		return nextPage.isEmpty() ? null : nextPage.get(0);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	RequestCacheSettingStore
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Settings store backed by the request-scoped
+ * 				SettingRequestCache.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request cache tier. Entries are namespaced so local and remote settings with the same name do not collide.
+ */
+@UserDefinedClassInfo
+public class RequestCacheSettingStore implements SettingStore {
+
+	private final String namespace;
+
+	/**
+	 * @param namespace cache namespace, e.g. "local" or the connection name
+	 */
+	public RequestCacheSettingStore(String namespace) {
+		this.namespace = namespace;
+	}
+
+	public Map<String, String> read(List<String> settingNames) {
+		SettingRequestCache cache = SettingRequestCache.get();
+		Map<String, String> results = VaultCollections.newMap();
+		for (String settingName : settingNames) {
+			String json = cache.getJson(namespace, settingName);
+			if (json != null) {
+				results.put(settingName, json);
+			}
+		}
+		return results;
+	}
+
+	public boolean write(Map<String, String> jsonByName) {
+		SettingRequestCache cache = SettingRequestCache.get();
+		for (Map.Entry<String, String> entry : jsonByName.entrySet()) {
+			cache.putJson(namespace, entry.getKey(), entry.getValue());
+		}
+		return true;
+	}
+
+	/**
+	 * Drops cached settings, e.g. after an operation was logged for them, so the next read goes to the next tier
+	 *
+	 * @param settingNames the setting names
+	 */
+	public void remove(List<String> settingNames) {
+		SettingRequestCache cache = SettingRequestCache.get();
+		for (String settingName : settingNames) {
+			cache.removeJson(namespace, settingName);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingDefaults
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	GENERATED by SettingDefaultsGenerator from the JSON
+ * 				files in javasdk/settings-defaults. Do not edit.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * Read-only default settings documents, packaged with the vault code.
+ * Defaults are served without a query or a save and sit below every persisted settings layer.
+ */
+@UserDefinedClassInfo
+public final class SettingDefaults {
+
+	private static final String DEFAULTS_0 = "{\"schema_version\":2,\"batch_size\":500,\"min_batch_size\":10,\"target_batch_millis\":5000,\"status_types\":[\"pending__c\"]}";
+
+	private SettingDefaults() {
+	}
+
+	/**
+	 * @param settingName the canonical setting name (fully qualified interface name)
+	 *
+	 * @return the default settings JSON, or null if the setting has no defaults
+	 */
+	public static String getJson(String settingName) {
+		if ("com.veeva.vault.custom.settings.ExampleSettings".equals(settingName)) {
+			return DEFAULTS_0;
+		}
+		return null;
+	}
+}
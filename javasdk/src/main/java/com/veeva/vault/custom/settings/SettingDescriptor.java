@@ -0,0 +1,117 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingDescriptor
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Canonical record names of a settings class, resolved
+ * 				once and held by the SettingRegistry.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+
+/**
+ * Settings class names
+ */
+@UserDefinedClassInfo
+public final class SettingDescriptor {
+
+	private static final String DELTA_SUFFIX = "~delta";
+
+	private final String settingName;
+	private final String deltaName;
+	private final List<String> readNames;
+	private final String idQuery;
+	private final String jsonQuery;
+
+	SettingDescriptor(Class<?> settingsClass) {
+		this.settingName = settingsClass.getName();
+		this.deltaName = getDeltaName(settingName);
+		this.readNames = VaultCollections.asList(settingName, deltaName);
+		this.idQuery = SettingQueries.build(SettingQueries.ID_QUERY, readNames);
+		this.jsonQuery = SettingQueries.build(SettingQueries.JSON_QUERY, readNames);
+	}
+
+	/**
+	 * Gets the name of the record that holds pending patches for a setting
+	 *
+	 * @param settingName the vsdk_setting__c record name
+	 *
+	 * @return the delta record name
+	 */
+	public static String getDeltaName(String settingName) {
+		return settingName + DELTA_SUFFIX;
+	}
+
+	/**
+	 * @param recordName vsdk_setting__c name__v
+	 *
+	 * @return true if the record holds pending patches for a setting
+	 */
+	public static boolean isDeltaName(String recordName) {
+		return recordName.endsWith(DELTA_SUFFIX);
+	}
+
+	/**
+	 * Tells the records of a setting itself apart from the helper records stored next to it in vsdk_setting__c:
+	 * deltas, logged operations, scope layers, mirrors of remote settings, shared payloads and version claims.
+	 *
+	 * @param recordName vsdk_setting__c name__v
+	 *
+	 * @return true if the record holds the global settings document of a setting
+	 */
+	public static boolean isSettingRecordName(String recordName) {
+		return !isDeltaName(recordName)
+				&& !SettingOperationLog.isOperationRecordName(recordName)
+				&& !SettingScope.isScopedRecordName(recordName)
+				&& !MirrorSettingStore.isMirrorRecordName(recordName)
+				&& !LocalSettingStore.isPayloadRecordName(recordName)
+				&& !LocalSettingStore.isVersionClaimRecordName(recordName);
+	}
+
+	/**
+	 * @return the canonical setting name (fully qualified interface name)
+	 */
+	public String getSettingName() {
+		return settingName;
+	}
+
+	/**
+	 * @return the name of the setting's delta record
+	 */
+	public String getDeltaName() {
+		return deltaName;
+	}
+
+	/**
+	 * @return the setting and delta record names, which are always read together
+	 */
+	public List<String> getReadNames() {
+		return readNames;
+	}
+
+	/**
+	 * @param template SettingQueries.ID_QUERY or SettingQueries.JSON_QUERY
+	 *
+	 * @return the query for the read names, or null for any other template
+	 */
+	String getQuery(String template) {
+		if (SettingQueries.ID_QUERY.equals(template)) {
+			return idQuery;
+		} else if (SettingQueries.JSON_QUERY.equals(template)) {
+			return jsonQuery;
+		}
+		return null;
+	}
+}
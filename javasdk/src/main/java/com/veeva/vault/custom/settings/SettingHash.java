@@ -0,0 +1,58 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingHash
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Content hash of settings JSON, stored in json_hash__c
+ * 				so identical payloads can be shared and compared
+ * 				without reading the JSON itself.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * 64-bit FNV-1a hash of the JSON text, as 16 lowercase hex digits.
+ * The hash is computed over the UTF-16 code units of the text, so the same JSON hashes the same in every vault.
+ */
+@UserDefinedClassInfo
+public final class SettingHash {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private SettingHash() {
+	}
+
+	/**
+	 * @param json settings JSON
+	 *
+	 * @return the content hash
+	 */
+	public static String of(String json) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < json.length(); i++) {
+			char c = json.charAt(i);
+			hash ^= (c >>> 8);
+			hash *= FNV_PRIME;
+			hash ^= (c & 0xff);
+			hash *= FNV_PRIME;
+		}
+
+		char[] hex = new char[16];
+		for (int i = 15; i >= 0; i--) {
+			hex[i] = HEX_DIGITS[(int) (hash & 0xf)];
+			hash >>>= 4;
+		}
+		return new String(hex);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingQueries
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				VQL templates for vsdk_setting__c and the escaping
+ * 				of string literals used to fill them.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+import java.util.List;
+
+/**
+ * Query templates are completed with an escaped name__v list. The queries of registered settings classes are kept by the SettingRegistry.
+ * The NAME_ templates only select fields every vsdk_setting__c has, so they are used to read other vaults.
+ */
+@UserDefinedClassInfo
+public final class SettingQueries {
+
+	/**
+	 * Id, name, version and content hash only
+	 */
+	public static final String ID_QUERY = "SELECT " + LocalSettingStore.OBJECT_FIELD_ID
+			+ ", " + LocalSettingStore.OBJECT_FIELD_NAME
+			+ ", " + LocalSettingStore.OBJECT_FIELD_VERSION
+			+ ", " + LocalSettingStore.OBJECT_FIELD_JSON_HASH
+			+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING
+			+ " WHERE " + LocalSettingStore.OBJECT_FIELD_NAME + " CONTAINS (";
+
+	/**
+	 * Id, name, version, content hash and the JSON as plaintext
+	 */
+	public static final String JSON_QUERY = "SELECT " + LocalSettingStore.OBJECT_FIELD_ID
+			+ ", " + LocalSettingStore.OBJECT_FIELD_NAME
+			+ ", " + LocalSettingStore.OBJECT_FIELD_VERSION
+			+ ", " + LocalSettingStore.OBJECT_FIELD_JSON_HASH
+			+ ", LONGTEXT(" + LocalSettingStore.OBJECT_FIELD_JSON + ")"
+			+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING
+			+ " WHERE " + LocalSettingStore.OBJECT_FIELD_NAME + " CONTAINS (";
+
+	/**
+	 * Name only
+	 */
+	public static final String NAME_QUERY = "SELECT " + LocalSettingStore.OBJECT_FIELD_NAME
+			+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING
+			+ " WHERE " + LocalSettingStore.OBJECT_FIELD_NAME + " CONTAINS (";
+
+	/**
+	 * Name and the JSON as plaintext
+	 */
+	public static final String NAME_JSON_QUERY = "SELECT " + LocalSettingStore.OBJECT_FIELD_NAME
+			+ ", LONGTEXT(" + LocalSettingStore.OBJECT_FIELD_JSON + ")"
+			+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING
+			+ " WHERE " + LocalSettingStore.OBJECT_FIELD_NAME + " CONTAINS (";
+
+	/**
+	 * Name and content hash, only for records known to hold their JSON in a payload record
+	 */
+	public static final String NAME_HASH_QUERY = "SELECT " + LocalSettingStore.OBJECT_FIELD_NAME
+			+ ", " + LocalSettingStore.OBJECT_FIELD_JSON_HASH
+			+ " FROM " + LocalSettingStore.OBJECT_SDK_SETTING
+			+ " WHERE " + LocalSettingStore.OBJECT_FIELD_NAME + " CONTAINS (";
+
+	/**
+	 * Appended after any criteria, so the newest record comes first when a name has duplicates
+	 */
+	public static final String ORDER_BY_NEWEST = " ORDER BY " + LocalSettingStore.OBJECT_FIELD_MODIFIED_DATE + " DESC";
+
+	/**
+	 * Appended after any criteria, so records come in name order and the newest record of a name comes first
+	 */
+	public static final String ORDER_BY_NAME_NEWEST = " ORDER BY " + LocalSettingStore.OBJECT_FIELD_NAME + " ASC, "
+			+ LocalSettingStore.OBJECT_FIELD_MODIFIED_DATE + " DESC";
+
+	private SettingQueries() {
+	}
+
+	/**
+	 * Quotes a VQL string literal, escaping backslashes and single quotes
+	 *
+	 * @param value the literal value
+	 *
+	 * @return the quoted literal
+	 */
+	public static String quote(String value) {
+		StringBuilder literal = new StringBuilder(value.length() + 2);
+		literal.append('\'');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '\'') {
+				literal.append('\\');
+			}
+			literal.append(c);
+		}
+		return literal.append('\'').toString();
+	}
+
+	/**
+	 * Completes a template with a name__v list
+	 *
+	 * @param template one of the query templates
+	 * @param recordNames the vsdk_setting__c record names
+	 *
+	 * @return the VQL query
+	 */
+	static String build(String template, List<String> recordNames) {
+		StringBuilder query = new StringBuilder(template);
+		for (int i = 0; i < recordNames.size(); i++) {
+			if (i > 0) {
+				query.append(", ");
+			}
+			query.append(quote(recordNames.get(i)));
+		}
+		return query.append(")").toString();
+	}
+}
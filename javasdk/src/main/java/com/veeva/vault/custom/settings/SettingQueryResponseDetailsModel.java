@@ -0,0 +1,34 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedModel:	SettingQueryResponseDetailsModel
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				The custom interface provides an extendable model with
+ * 				named getters and setters that represents JSON data.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedModel;
+import com.veeva.vault.sdk.api.core.UserDefinedModelInfo;
+import com.veeva.vault.sdk.api.core.UserDefinedProperty;
+import com.veeva.vault.sdk.api.core.UserDefinedPropertyInclude;
+
+/**
+ * Model that presents the paging details of a VQL query response
+ *
+ * @return SettingQueryResponseDetailsModel
+ */
+@UserDefinedModelInfo(include = UserDefinedPropertyInclude.NON_NULL)
+public interface SettingQueryResponseDetailsModel extends UserDefinedModel {
+
+	@UserDefinedProperty(name = "next_page")
+	String getNextPage();
+
+	@UserDefinedProperty
+	Integer getTotal();
+}
@@ -35,6 +35,9 @@ public interface SettingQueryResponseModel extends UserDefinedModel {
 	@UserDefinedProperty
 	String getResponseStatus();
 
+	@UserDefinedProperty
+	SettingQueryResponseDetailsModel getResponseDetails();
+
 	@UserDefinedProperty
 	List<Map<String,String>> getErrors();
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingRegistry
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Registry of settings class descriptors and built VQL
+ * 				queries, stored in the RequestContext.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.RequestContext;
+import com.veeva.vault.sdk.api.core.RequestContextValue;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A settings class is described once per request, and its id-only and JSON queries are built when it is registered.
+ * Queries for the read names of a registered class are looked up by any of those names, in any order,
+ * so repeated reads do no string building; any other name list is built on each call.
+ */
+@UserDefinedClassInfo
+public final class SettingRegistry implements RequestContextValue {
+
+	private static final String CONTEXT_NAME = "vsdk_setting_registry";
+
+	private final Map<Class<?>, SettingDescriptor> descriptors = VaultCollections.newMap();
+	private final Map<String, SettingDescriptor> descriptorsByName = VaultCollections.newMap();
+
+	private SettingRegistry() {
+	}
+
+	/**
+	 * Gets the registry for the current request, creating it on first use
+	 *
+	 * @return SettingRegistry
+	 */
+	public static SettingRegistry get() {
+		RequestContext requestContext = RequestContext.get();
+		SettingRegistry registry = requestContext.getValue(CONTEXT_NAME, SettingRegistry.class);
+		if (registry == null) {
+			registry = new SettingRegistry();
+			requestContext.setValue(CONTEXT_NAME, registry);
+		}
+		return registry;
+	}
+
+	/**
+	 * Describes a settings class, registering it on first use
+	 *
+	 * @param settingsClass the interface reference
+	 *
+	 * @return SettingDescriptor
+	 */
+	public SettingDescriptor describe(Class<?> settingsClass) {
+		SettingDescriptor descriptor = descriptors.get(settingsClass);
+		if (descriptor == null) {
+			descriptor = new SettingDescriptor(settingsClass);
+			descriptors.put(settingsClass, descriptor);
+			for (String readName : descriptor.getReadNames()) {
+				descriptorsByName.put(readName, descriptor);
+			}
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Gets a query for a name__v list.
+	 * The read names of a registered class are matched as a set: the first name finds the descriptor with one map access,
+	 * and the list is compared with its few read names, so callers may list the names in any order, e.g. from a map's key set.
+	 *
+	 * @param template SettingQueries.ID_QUERY or SettingQueries.JSON_QUERY
+	 * @param recordNames the vsdk_setting__c record names
+	 *
+	 * @return the VQL query
+	 */
+	public String getQuery(String template, List<String> recordNames) {
+		SettingDescriptor descriptor = recordNames.isEmpty() ? null : descriptorsByName.get(recordNames.get(0));
+		if (descriptor != null && descriptor.getReadNames().size() == recordNames.size() && recordNames.containsAll(descriptor.getReadNames())) {
+			String query = descriptor.getQuery(template);
+			if (query != null) {
+				return query;
+			}
+		}
+		return SettingQueries.build(template, recordNames);
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingRequestCache
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Request-scoped cache of resolved settings, stored in
+ * 				the RequestContext so it lives for one transaction.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.RequestContext;
+import com.veeva.vault.sdk.api.core.RequestContextValue;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.UserDefinedModel;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of settings JSON and resolved settings models for the current request.
+ * Cached models are shared, so callers must treat them as read-only.
+ * Decoded models are keyed by the content hash of their JSON, so identical payloads are converted once.
+ * Logged operations folded into the JSON read by this request are kept, so a write of that JSON deletes only them.
+ */
+@UserDefinedClassInfo
+public final class SettingRequestCache implements RequestContextValue {
+
+	private static final String CONTEXT_NAME = "vsdk_setting_request_cache";
+
+	private final Map<String, UserDefinedModel> models = VaultCollections.newMap();
+	private final Map<String, String> jsonByKey = VaultCollections.newMap();
+	private final Map<String, UserDefinedModel> decodedModels = VaultCollections.newMap();
+	private final Map<String, List<SettingOperation>> foldedOperations = VaultCollections.newMap();
+	private final Map<String, Boolean> jsonHashFieldByConnection = VaultCollections.newMap();
+	private final Set<String> unreadConnections = VaultCollections.newSet();
+	private int operationSequence;
+
+	private SettingRequestCache() {
+	}
+
+	/**
+	 * Gets the cache for the current request, creating it on first use
+	 *
+	 * @return SettingRequestCache
+	 */
+	public static SettingRequestCache get() {
+		RequestContext requestContext = RequestContext.get();
+		SettingRequestCache cache = requestContext.getValue(CONTEXT_NAME, SettingRequestCache.class);
+		if (cache == null) {
+			cache = new SettingRequestCache();
+			requestContext.setValue(CONTEXT_NAME, cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * @param key cache key
+	 * @param settingsClass the interface reference
+	 *
+	 * @return the cached model, or null if not cached
+	 */
+	@SuppressWarnings("unchecked")
+	public <U extends UserDefinedModel> U getModel(String key, Class<U> settingsClass) {
+		return (U) models.get(key);
+	}
+
+	/**
+	 * @param key cache key
+	 * @param model resolved model
+	 */
+	public void putModel(String key, UserDefinedModel model) {
+		models.put(key, model);
+	}
+
+	/**
+	 * @param hash content hash of the JSON
+	 * @param settingsClass the interface reference
+	 *
+	 * @return the model decoded from the JSON, or null if not decoded yet
+	 */
+	@SuppressWarnings("unchecked")
+	public <U extends UserDefinedModel> U getDecodedModel(String hash, Class<U> settingsClass) {
+		return (U) decodedModels.get(settingsClass.getName() + "|" + hash);
+	}
+
+	/**
+	 * Decoded models are derived from their content only, so they stay valid after saves
+	 *
+	 * @param hash content hash of the JSON
+	 * @param settingsClass the interface reference
+	 * @param model the decoded model
+	 */
+	public void putDecodedModel(String hash, Class<? extends UserDefinedModel> settingsClass, UserDefinedModel model) {
+		decodedModels.put(settingsClass.getName() + "|" + hash, model);
+	}
+
+	/**
+	 * @return the next operation log sequence number of this request
+	 */
+	public int nextOperationSequence() {
+		return operationSequence++;
+	}
+
+	/**
+	 * @param settingName the vsdk_setting__c record name
+	 * @param operations the logged operations folded into the JSON read for the setting
+	 */
+	public void putFoldedOperations(String settingName, List<SettingOperation> operations) {
+		foldedOperations.put(settingName, operations);
+	}
+
+	/**
+	 * @param settingName the vsdk_setting__c record name
+	 *
+	 * @return the operations folded into the JSON read for the setting, or null if there were none
+	 */
+	public List<SettingOperation> getFoldedOperations(String settingName) {
+		return foldedOperations.get(settingName);
+	}
+
+	/**
+	 * @param settingName the vsdk_setting__c record name
+	 *
+	 * @return the operations folded into the JSON read for the setting, or null if there were none
+	 */
+	public List<SettingOperation> removeFoldedOperations(String settingName) {
+		return foldedOperations.remove(settingName);
+	}
+
+	/**
+	 * @param connectionName name of the remote connection
+	 *
+	 * @return whether vsdk_setting__c in the remote vault has json_hash__c, or null if not checked yet
+	 */
+	public Boolean getJsonHashField(String connectionName) {
+		return jsonHashFieldByConnection.get(connectionName);
+	}
+
+	/**
+	 * @param connectionName name of the remote connection
+	 * @param hasField whether vsdk_setting__c in the remote vault has json_hash__c
+	 */
+	public void putJsonHashField(String connectionName, boolean hasField) {
+		jsonHashFieldByConnection.put(connectionName, hasField);
+	}
+
+	/**
+	 * @param connectionName name of the remote connection whose settings could not be read in this request
+	 */
+	public void putUnreadConnection(String connectionName) {
+		unreadConnections.add(connectionName);
+	}
+
+	/**
+	 * @param connectionName name of the remote connection
+	 *
+	 * @return true if a settings read from the connection failed in this request
+	 */
+	public boolean isUnreadConnection(String connectionName) {
+		return unreadConnections.contains(connectionName);
+	}
+
+	/**
+	 * Drops all resolved models, e.g. after a settings save
+	 */
+	public void clearModels() {
+		models.clear();
+	}
+
+	/**
+	 * @param namespace cache namespace
+	 * @param settingName the vsdk_setting__c record name
+	 *
+	 * @return the cached JSON, or null if not cached
+	 */
+	public String getJson(String namespace, String settingName) {
+		return jsonByKey.get(namespace + "|" + settingName);
+	}
+
+	/**
+	 * @param namespace cache namespace
+	 * @param settingName the vsdk_setting__c record name
+	 * @param json settings JSON
+	 */
+	public void putJson(String namespace, String settingName, String json) {
+		jsonByKey.put(namespace + "|" + settingName, json);
+	}
+
+	/**
+	 * @param namespace cache namespace
+	 * @param settingName the vsdk_setting__c record name
+	 */
+	public void removeJson(String namespace, String settingName) {
+		jsonByKey.remove(namespace + "|" + settingName);
+	}
+}
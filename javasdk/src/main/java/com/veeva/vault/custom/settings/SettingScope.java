@@ -0,0 +1,87 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingScope
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				A scope identifies one settings layer (global,
+ * 				object-level or connection-level) stored as its
+ * 				own vsdk_setting__c record.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * Settings layer. Layers are resolved from global, to object-level, to connection-level,
+ * with each later layer overriding the properties it sets.
+ */
+@UserDefinedClassInfo
+public final class SettingScope {
+
+	private static final String OBJECT_SEPARATOR = "@object:";
+	private static final String CONNECTION_SEPARATOR = "@connection:";
+
+	private final String separator;
+	private final String qualifier;
+
+	private SettingScope(String separator, String qualifier) {
+		this.separator = separator;
+		this.qualifier = qualifier;
+	}
+
+	/**
+	 * @return the global (unqualified) scope
+	 */
+	public static SettingScope global() {
+		return new SettingScope(null, null);
+	}
+
+	/**
+	 * @param objectName object name, e.g. vsdk_udm_example__c
+	 *
+	 * @return the object-level scope
+	 */
+	public static SettingScope forObject(String objectName) {
+		return new SettingScope(OBJECT_SEPARATOR, objectName);
+	}
+
+	/**
+	 * @param connectionName connection api name
+	 *
+	 * @return the connection-level scope
+	 */
+	public static SettingScope forConnection(String connectionName) {
+		return new SettingScope(CONNECTION_SEPARATOR, connectionName);
+	}
+
+	/**
+	 * @param recordName vsdk_setting__c name__v
+	 *
+	 * @return true if the record holds an object-level or connection-level layer
+	 */
+	public static boolean isScopedRecordName(String recordName) {
+		return recordName.contains(OBJECT_SEPARATOR) || recordName.contains(CONNECTION_SEPARATOR);
+	}
+
+	/**
+	 * Converts a canonical setting name into the record name for this scope
+	 *
+	 * @param settingName canonical setting name
+	 *
+	 * @return the vsdk_setting__c name__v for this layer
+	 */
+	public String getSettingName(String settingName) {
+		if (qualifier == null) {
+			return settingName;
+		}
+		return settingName + separator + qualifier;
+	}
+}
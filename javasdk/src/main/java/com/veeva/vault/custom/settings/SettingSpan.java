@@ -0,0 +1,143 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingSpan
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				A single timed step of a traced transaction, such as
+ * 				a settings read, a query or an HTTP callout.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+
+import java.util.List;
+
+/**
+ * Spans are created by SettingTracer.startSpan and must be ended in a finally block.
+ * When tracing is not enabled for the request, the span is inactive and all of its methods do nothing.
+ */
+@UserDefinedClassInfo
+public final class SettingSpan {
+
+	private final SettingTracer tracer;
+	private final int id;
+	private final int parentId;
+	private final String name;
+	private final String category;
+	private final long startMillis;
+	private long endMillis = -1;
+	private final List<String> attributeNames = VaultCollections.newList();
+	private final List<String> attributeValues = VaultCollections.newList();
+
+	SettingSpan(SettingTracer tracer, int id, int parentId, String name, String category, long startMillis) {
+		this.tracer = tracer;
+		this.id = id;
+		this.parentId = parentId;
+		this.name = name;
+		this.category = category;
+		this.startMillis = startMillis;
+	}
+
+	/**
+	 * @return true if the span is recorded
+	 */
+	public boolean isActive() {
+		return tracer != null;
+	}
+
+	/**
+	 * @param name attribute name, e.g. connection_name
+	 * @param value attribute value
+	 *
+	 * @return this span
+	 */
+	public SettingSpan setAttribute(String name, String value) {
+		if (tracer != null) {
+			attributeNames.add(name);
+			attributeValues.add(value == null ? null : SettingJson.toStringValue(value));
+		}
+		return this;
+	}
+
+	/**
+	 * @param name attribute name, e.g. payload_size
+	 * @param value attribute value
+	 *
+	 * @return this span
+	 */
+	public SettingSpan setAttribute(String name, long value) {
+		if (tracer != null) {
+			attributeNames.add(name);
+			attributeValues.add(String.valueOf(value));
+		}
+		return this;
+	}
+
+	/**
+	 * Ends the span, and any child spans that were left open
+	 */
+	public void end() {
+		if (tracer != null && endMillis < 0) {
+			tracer.endSpan(this, System.currentTimeMillis());
+		}
+	}
+
+	void setEndMillis(long endMillis) {
+		this.endMillis = endMillis;
+	}
+
+	boolean isEnded() {
+		return endMillis >= 0;
+	}
+
+	int getId() {
+		return id;
+	}
+
+	long getStartMillis() {
+		return startMillis;
+	}
+
+	long getEndMillis() {
+		return endMillis;
+	}
+
+	/**
+	 * Builds the Chrome Trace Event of the span, a complete ("X") event with microsecond times
+	 *
+	 * @param originMillis start time of the trace
+	 *
+	 * @return the event JSON
+	 */
+	String toTraceEvent(long originMillis) {
+		SettingJson args = SettingJson.empty();
+		args.set("span_id", String.valueOf(id));
+		if (parentId >= 0) {
+			args.set("parent_id", String.valueOf(parentId));
+		}
+		for (int i = 0; i < attributeNames.size(); i++) {
+			String value = attributeValues.get(i);
+			args.set(attributeNames.get(i), value == null ? "null" : value);
+		}
+
+		SettingJson event = SettingJson.empty();
+		event.set("name", SettingJson.toStringValue(name));
+		event.set("cat", SettingJson.toStringValue(category));
+		event.set("ph", "\"X\"");
+		event.set("ts", String.valueOf((startMillis - originMillis) * 1000));
+		event.set("dur", String.valueOf((endMillis - startMillis) * 1000));
+		event.set("pid", "1");
+		event.set("tid", "1");
+		event.set("args", args.toString());
+		return event.toString();
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	SettingTracer
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				Opt-in span tracing of a single transaction, stored
+ * 				in the RequestContext and exported to vsdk_trace__c
+ * 				as a Chrome Trace Event document.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.LogService;
+import com.veeva.vault.sdk.api.core.RequestContext;
+import com.veeva.vault.sdk.api.core.RequestContextValue;
+import com.veeva.vault.sdk.api.core.ServiceLocator;
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+import com.veeva.vault.sdk.api.core.VaultCollections;
+import com.veeva.vault.sdk.api.data.Record;
+import com.veeva.vault.sdk.api.data.RecordService;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Tracing only records spans between start and finish; outside of a trace, startSpan returns an inactive span.
+ * Spans are held in memory until finish, which saves the trace or discards it.
+ * Spans nest by the order they are started and ended, so a span started inside another span is its child.
+ * The exported document can be opened in chrome://tracing or Perfetto; times are in milliseconds,
+ * the resolution of System.currentTimeMillis, scaled to the microseconds of the format.
+ */
+@UserDefinedClassInfo
+public final class SettingTracer implements RequestContextValue {
+
+	public static final String CATEGORY_TRANSACTION = "transaction";
+	public static final String CATEGORY_SETTINGS = "settings";
+	public static final String CATEGORY_QUERY = "query";
+	public static final String CATEGORY_JSON = "json";
+	public static final String CATEGORY_SAVE = "save";
+	public static final String CATEGORY_HTTP = "http";
+	static final String OBJECT_TRACE = "vsdk_trace__c";
+	static final String OBJECT_FIELD_NAME = "name__v";
+	static final String OBJECT_FIELD_TRACE_JSON = "trace_json__c";
+	static final String OBJECT_FIELD_DURATION = "duration__c";
+	static final String OBJECT_FIELD_SPAN_COUNT = "span_count__c";
+	private static final String CONTEXT_NAME = "vsdk_setting_tracer";
+	private static final int MAX_TRACE_LENGTH = 32000;
+	private static final int MAX_NAME_LENGTH = 128;
+	// Room left for the traceEvents brackets and the otherData object
+	private static final int ENVELOPE_LENGTH = 512;
+
+	private final String transactionName;
+	private final List<SettingSpan> spans = VaultCollections.newList();
+	private final List<SettingSpan> openSpans = VaultCollections.newList();
+	private boolean finished;
+
+	private SettingTracer(String transactionName) {
+		this.transactionName = transactionName;
+	}
+
+	/**
+	 * Starts tracing the current request, with a root span for the transaction
+	 *
+	 * @param transactionName name of the root span, e.g. ExampleUDMTrigger
+	 * @param startMillis start time of the transaction, so work done before tracing was enabled is covered by the root span
+	 *
+	 * @return the tracer, or null if the request is already traced; nested work is then recorded in the existing trace
+	 */
+	public static SettingTracer start(String transactionName, long startMillis) {
+		if (current() != null) {
+			return null;
+		}
+
+		SettingTracer tracer = new SettingTracer(transactionName);
+		tracer.openSpan(transactionName, CATEGORY_TRANSACTION, startMillis);
+		RequestContext.get().setValue(CONTEXT_NAME, tracer);
+		return tracer;
+	}
+
+	/**
+	 * @return the tracer of the current request, or null if the request is not being traced
+	 */
+	static SettingTracer current() {
+		SettingTracer tracer = RequestContext.get().getValue(CONTEXT_NAME, SettingTracer.class);
+		return tracer == null || tracer.finished ? null : tracer;
+	}
+
+	/**
+	 * Starts a span as a child of the innermost open span
+	 *
+	 * @param name span name, e.g. LocalSettingStore.query
+	 * @param category one of the CATEGORY constants
+	 *
+	 * @return the span; inactive if the request is not being traced
+	 */
+	public static SettingSpan startSpan(String name, String category) {
+		SettingTracer tracer = current();
+		if (tracer == null) {
+			return new SettingSpan(null, -1, -1, name, category, 0);
+		}
+		return tracer.openSpan(name, category, System.currentTimeMillis());
+	}
+
+	private SettingSpan openSpan(String name, String category, long startMillis) {
+		int parentId = openSpans.isEmpty() ? -1 : openSpans.get(openSpans.size() - 1).getId();
+		SettingSpan span = new SettingSpan(this, spans.size(), parentId, name, category, startMillis);
+		spans.add(span);
+		openSpans.add(span);
+		return span;
+	}
+
+	/**
+	 * Ends a span. Child spans left open, e.g. by an exception, end with it.
+	 */
+	void endSpan(SettingSpan span, long endMillis) {
+		int index = openSpans.lastIndexOf(span);
+		if (index < 0) {
+			span.setEndMillis(endMillis);
+			return;
+		}
+		while (openSpans.size() > index) {
+			openSpans.remove(openSpans.size() - 1).setEndMillis(endMillis);
+		}
+	}
+
+	/**
+	 * @return the span of the whole transaction
+	 */
+	public SettingSpan getRootSpan() {
+		return spans.get(0);
+	}
+
+	/**
+	 * Ends the trace, which is recorded in memory only until then, and decides whether to keep it.
+	 * Callers can start tracing before they know whether tracing is enabled and pass the setting read later.
+	 *
+	 * @param minDurationMillis minimum duration of a saved trace, 0 to save every trace, null to discard the trace
+	 *
+	 * @return true if the trace was saved
+	 */
+	public boolean finish(BigDecimal minDurationMillis) {
+		if (minDurationMillis == null) {
+			if (!finished) {
+				getRootSpan().end();
+				finished = true;
+			}
+			return false;
+		}
+		return finish(minDurationMillis.longValue());
+	}
+
+	/**
+	 * Ends the trace and saves it as a vsdk_trace__c record if the transaction took at least minDurationMillis.
+	 * A failed save is logged and does not fail the transaction.
+	 *
+	 * @param minDurationMillis minimum duration of a saved trace, 0 to save every trace
+	 *
+	 * @return true if the trace was saved
+	 */
+	public boolean finish(long minDurationMillis) {
+		if (finished) {
+			return false;
+		}
+		SettingSpan rootSpan = getRootSpan();
+		rootSpan.end();
+		finished = true;
+
+		long durationMillis = rootSpan.getEndMillis() - rootSpan.getStartMillis();
+		if (durationMillis < minDurationMillis) {
+			return false;
+		}
+
+		String recordName = transactionName + " " + rootSpan.getStartMillis();
+		RecordService recordService = ServiceLocator.locate(RecordService.class);
+		Record record = recordService.newRecord(OBJECT_TRACE);
+		record.setValue(OBJECT_FIELD_NAME, recordName.length() > MAX_NAME_LENGTH ? recordName.substring(0, MAX_NAME_LENGTH) : recordName);
+		record.setValue(OBJECT_FIELD_TRACE_JSON, toTraceEventJson());
+		record.setValue(OBJECT_FIELD_DURATION, new BigDecimal(durationMillis));
+		record.setValue(OBJECT_FIELD_SPAN_COUNT, new BigDecimal(spans.size()));
+
+		List<Boolean> saved = VaultCollections.newList();
+		saved.add(Boolean.TRUE);
+		recordService.batchSaveRecords(VaultCollections.asList(record))
+				.onErrors(batchOperationErrors -> {
+					saved.set(0, Boolean.FALSE);
+					batchOperationErrors.forEach(error -> ServiceLocator.locate(LogService.class)
+							.warn("Trace {} was not saved: {}", recordName, error.getError().getMessage()));
+				})
+				.execute();
+		return saved.get(0);
+	}
+
+	/**
+	 * Builds the Chrome Trace Event document of the trace, in the JSON object format.
+	 * Spans that do not fit in a vsdk_trace__c record are left out and counted in otherData.
+	 *
+	 * @return the trace JSON
+	 */
+	public String toTraceEventJson() {
+		long originMillis = getRootSpan().getStartMillis();
+		StringBuilder events = new StringBuilder("[");
+		int droppedSpans = 0;
+		for (SettingSpan span : spans) {
+			if (!span.isEnded()) {
+				continue;
+			}
+			String event = span.toTraceEvent(originMillis);
+			if (events.length() + event.length() + ENVELOPE_LENGTH > MAX_TRACE_LENGTH) {
+				droppedSpans++;
+				continue;
+			}
+			if (events.length() > 1) {
+				events.append(',');
+			}
+			events.append(event);
+		}
+		events.append(']');
+
+		SettingJson otherData = SettingJson.empty();
+		otherData.set("transaction", SettingJson.toStringValue(transactionName));
+		otherData.set("start_millis", String.valueOf(originMillis));
+		otherData.set("span_count", String.valueOf(spans.size()));
+		otherData.set("dropped_spans", String.valueOf(droppedSpans));
+
+		SettingJson trace = SettingJson.empty();
+		trace.set("traceEvents", events.toString());
+		trace.set("displayTimeUnit", "\"ms\"");
+		trace.set("otherData", otherData.toString());
+		return trace.toString();
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * --------------------------------------------------------------------
+ * UserDefinedClass:	VersionedSetting
+ * Author:				Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	This code provides examples of a common use case
+ * 				for a User-Defined Model (UDM): Custom SDK Settings.
+ * 				A settings value together with the version__c of the
+ * 				vsdk_setting__c record it was read from.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *		This code is based on pre-existing content developed and
+ * 		owned by Veeva Systems Inc. and may only be used in connection
+ *		with the deliverable with which it was provided to Customer.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.settings;
+
+import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;
+
+/**
+ * Settings value and record version. Version 0 means the record does not exist yet.
+ */
+@UserDefinedClassInfo
+public final class VersionedSetting<T> {
+
+	private final T value;
+	private final long version;
+
+	public VersionedSetting(T value, long version) {
+		this.value = value;
+		this.version = version;
+	}
+
+	/**
+	 * @return the settings value, or null if the record does not exist
+	 */
+	public T getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the record version to pass to a compare-and-set save
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
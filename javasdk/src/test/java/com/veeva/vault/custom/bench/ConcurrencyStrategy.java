@@ -0,0 +1,106 @@
+/*
+ * --------------------------------------------------------------------
+ * Benchmark:	ConcurrencyStrategy
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	Settings update strategies compared by the settings
+ * 				contention benchmark, each modelled on the calls the
+ * 				settings service makes against vsdk_setting__c.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.bench;
+
+/**
+ * A read-modify-write of one setting. Each strategy reports whether the update was acknowledged to the caller.
+ */
+enum ConcurrencyStrategy {
+
+	/**
+	 * saveLocalSettings: read, then save the full document without a version check
+	 */
+	LAST_WRITE_WINS {
+		@Override
+		boolean update(InMemorySettingTable table, String name, int maxAttempts) {
+			InMemorySettingTable.Row current = table.query(name);
+			table.save(name, new InMemorySettingTable.Row(current.version + 1, current.counter + 1));
+			return true;
+		}
+	},
+
+	/**
+	 * Read, re-query the version, then save.
+	 * The version check and the save are separate calls, so a concurrent save between them is still lost.
+	 */
+	CHECK_THEN_SAVE {
+		@Override
+		boolean update(InMemorySettingTable table, String name, int maxAttempts) {
+			for (int attempt = 0; attempt < maxAttempts; attempt++) {
+				InMemorySettingTable.Row current = table.query(name);
+				InMemorySettingTable.Row checked = table.query(name);
+				if (checked.version == current.version) {
+					table.save(name, new InMemorySettingTable.Row(current.version + 1, current.counter + 1));
+					return true;
+				}
+			}
+			return false;
+		}
+	},
+
+	/**
+	 * updateLocalSettings as implemented with the SDK: read, claim the next version by inserting a record
+	 * with a unique name, check the version again, then save. Only the save that inserted the claim may write the version.
+	 * After the save the claims of older versions are deleted, so only the claim of the current version is left;
+	 * newer claims may belong to saves still in progress and are kept.
+	 */
+	UNIQUE_VERSION_CLAIM {
+		@Override
+		boolean update(InMemorySettingTable table, String name, int maxAttempts) {
+			for (int attempt = 0; attempt < maxAttempts; attempt++) {
+				InMemorySettingTable.Row current = table.query(name);
+				long newVersion = current == null ? 1 : current.version + 1;
+				long counter = current == null ? 0 : current.counter;
+				if (!table.insertClaim(name + "~v" + newVersion)) {
+					continue;
+				}
+				InMemorySettingTable.Row checked = table.query(name);
+				if ((checked == null ? 0 : checked.version) != newVersion - 1) {
+					table.deleteClaim(name + "~v" + newVersion);
+					continue;
+				}
+				table.save(name, new InMemorySettingTable.Row(newVersion, counter + 1));
+				table.deleteClaimsBelow(name, newVersion);
+				return true;
+			}
+			return false;
+		}
+	},
+
+	/**
+	 * Compare-and-set where the version check is part of the save, e.g. a conditional update in the data layer
+	 */
+	ATOMIC_COMPARE_AND_SET {
+		@Override
+		boolean update(InMemorySettingTable table, String name, int maxAttempts) {
+			for (int attempt = 0; attempt < maxAttempts; attempt++) {
+				InMemorySettingTable.Row current = table.query(name);
+				if (table.saveIfVersion(name, current.version, new InMemorySettingTable.Row(current.version + 1, current.counter + 1))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Adds one to the counter of a setting
+	 *
+	 * @param table the settings rows
+	 * @param name the setting name
+	 * @param maxAttempts maximum read-modify-write attempts for retrying strategies
+	 *
+	 * @return true if the update was acknowledged
+	 */
+	abstract boolean update(InMemorySettingTable table, String name, int maxAttempts);
+}
@@ -0,0 +1,151 @@
+/*
+ * --------------------------------------------------------------------
+ * Benchmark:	InMemorySettingTable
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	Stand-in for the vsdk_setting__c object used by the
+ * 				settings contention benchmark. Each query and save
+ * 				takes a fixed simulated round trip, so strategies
+ * 				are compared on the number and order of calls they
+ * 				make rather than on in-memory speed.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.bench;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory settings rows keyed by name__v.
+ * A row holds version__c and a counter standing in for the settings JSON;
+ * every acknowledged update adds one to the counter, so lost updates show up as a missing count.
+ */
+final class InMemorySettingTable {
+
+	/**
+	 * Immutable settings row
+	 */
+	static final class Row {
+		final long version;
+		final long counter;
+
+		Row(long version, long counter) {
+			this.version = version;
+			this.counter = counter;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Row> rows = new ConcurrentHashMap<>();
+	private final Set<String> claims = ConcurrentHashMap.newKeySet();
+	private final long roundTripNanos;
+
+	/**
+	 * @param names the setting names to create, at version 1
+	 * @param roundTripNanos simulated time of each query or save
+	 */
+	InMemorySettingTable(List<String> names, long roundTripNanos) {
+		this.roundTripNanos = roundTripNanos;
+		for (String name : names) {
+			rows.put(name, new Row(1, 0));
+		}
+	}
+
+	/**
+	 * Equivalent of the id/version/JSON query for one name
+	 */
+	Row query(String name) {
+		roundTrip();
+		return rows.get(name);
+	}
+
+	/**
+	 * Equivalent of an unconditional batchSaveRecords of one record
+	 */
+	void save(String name, Row row) {
+		roundTrip();
+		rows.put(name, row);
+	}
+
+	/**
+	 * Equivalent of LocalSettingStore.write: an unconditional save that also deletes the version claims of the setting
+	 */
+	void write(String name, Row row) {
+		save(name, row);
+		deleteClaimsBelow(name, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Equivalent of deleting the settings record, e.g. by an admin; its version claims are left behind
+	 */
+	void delete(String name) {
+		roundTrip();
+		rows.remove(name);
+	}
+
+	/**
+	 * Save that only succeeds if the stored version is still the expected one, checked atomically with the write
+	 *
+	 * @return true if the row was saved
+	 */
+	boolean saveIfVersion(String name, long expectedVersion, Row row) {
+		roundTrip();
+		return rows.computeIfPresent(name, (key, current) -> current.version == expectedVersion ? row : current) == row;
+	}
+
+	/**
+	 * Equivalent of inserting a record with a unique name__v
+	 *
+	 * @return true if no record had the name
+	 */
+	boolean insertClaim(String claimName) {
+		roundTrip();
+		return claims.add(claimName);
+	}
+
+	/**
+	 * Equivalent of deleting a record by name
+	 */
+	void deleteClaim(String claimName) {
+		roundTrip();
+		claims.remove(claimName);
+	}
+
+	/**
+	 * Equivalent of deleting the version claims of a setting found by a name__v LIKE query
+	 *
+	 * @param version claims of this version and above are kept
+	 */
+	void deleteClaimsBelow(String name, long version) {
+		roundTrip();
+		String prefix = name + "~v";
+		claims.removeIf(claimName -> claimName.startsWith(prefix) && Long.parseLong(claimName.substring(prefix.length())) < version);
+	}
+
+	/**
+	 * @return the number of claim records left
+	 */
+	int claimCount() {
+		return claims.size();
+	}
+
+	/**
+	 * @return the sum of all counters, i.e. the number of updates that survived
+	 */
+	long totalCounter() {
+		long total = 0;
+		for (Row row : rows.values()) {
+			total += row.counter;
+		}
+		return total;
+	}
+
+	private void roundTrip() {
+		if (roundTripNanos > 0) {
+			LockSupport.parkNanos(roundTripNanos);
+		}
+	}
+}
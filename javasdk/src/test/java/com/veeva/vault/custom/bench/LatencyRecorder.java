@@ -0,0 +1,55 @@
+/*
+ * --------------------------------------------------------------------
+ * Benchmark:	LatencyRecorder
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	Per-thread latency samples for the settings contention
+ * 				benchmark, merged after the run for percentiles.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.bench;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of latencies in nanoseconds. Not thread-safe; each worker thread owns one.
+ */
+final class LatencyRecorder {
+
+	private long[] samples = new long[1024];
+	private int size;
+
+	void record(long nanos) {
+		if (size == samples.length) {
+			samples = Arrays.copyOf(samples, size * 2);
+		}
+		samples[size++] = nanos;
+	}
+
+	void addAll(LatencyRecorder other) {
+		for (int i = 0; i < other.size; i++) {
+			record(other.samples[i]);
+		}
+	}
+
+	int getCount() {
+		return size;
+	}
+
+	/**
+	 * @param percentile e.g. 99.0
+	 *
+	 * @return the latency at the percentile in microseconds, 0 if there are no samples
+	 */
+	long getPercentileMicros(double percentile) {
+		if (size == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(samples, size);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+		return sorted[Math.max(0, Math.min(size - 1, index))] / 1000;
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * --------------------------------------------------------------------
+ * Benchmark:	SettingContentionBenchmark
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	Multi-threaded benchmark of concurrent settings reads
+ * 				and writes against an in-memory stand-in for
+ * 				vsdk_setting__c. It reports throughput, tail latency
+ * 				and lost updates for each update strategy, on one
+ * 				hot setting name and on many setting names.
+ * 				This code runs on a developer machine only; it is
+ * 				not part of the vault code package.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run with:
+ * 		mvn test-compile exec:java -Dexec.classpathScope=test
+ * 			-Dexec.mainClass=com.veeva.vault.custom.bench.SettingContentionBenchmark
+ * Optional system properties (defaults in brackets):
+ * 		bench.readers [8], bench.writers [8], bench.names [50], bench.seconds [5],
+ * 		bench.roundTripMicros [200], bench.maxAttempts [3]
+ */
+public class SettingContentionBenchmark {
+
+	private static final String SETTING_NAME = "com.veeva.vault.custom.settings.ExampleSettings";
+
+	private final int readers = Integer.getInteger("bench.readers", 8);
+	private final int writers = Integer.getInteger("bench.writers", 8);
+	private final int spreadNames = Integer.getInteger("bench.names", 50);
+	private final long durationMillis = Integer.getInteger("bench.seconds", 5) * 1000L;
+	private final long roundTripNanos = Integer.getInteger("bench.roundTripMicros", 200) * 1000L;
+	private final int maxAttempts = Integer.getInteger("bench.maxAttempts", 3);
+
+	public static void main(String[] args) throws InterruptedException {
+		new SettingContentionBenchmark().runAll();
+	}
+
+	void runAll() throws InterruptedException {
+		System.out.printf("readers=%d writers=%d roundTrip=%dus duration=%dms maxAttempts=%d%n",
+				readers, writers, roundTripNanos / 1000, durationMillis, maxAttempts);
+		System.out.printf("%-24s %6s %10s %10s %10s %11s %8s %8s %8s%n",
+				"strategy", "names", "reads/s", "writes/s", "read p99", "write p99", "acked", "lost", "failed");
+
+		for (int nameCount : new int[] {1, spreadNames}) {
+			for (ConcurrencyStrategy strategy : ConcurrencyStrategy.values()) {
+				run(strategy, nameCount).print();
+			}
+		}
+		checkClaimLifecycle();
+	}
+
+	/**
+	 * Replays the sequences that used to leave version claims behind: compare-and-set saves mixed with plain writes,
+	 * and a setting that is deleted and created again. Every compare-and-set save must succeed without a conflict.
+	 */
+	void checkClaimLifecycle() {
+		InMemorySettingTable table = new InMemorySettingTable(Collections.singletonList(SETTING_NAME), 0);
+		boolean saved = true;
+		for (int i = 0; i < 3; i++) {
+			saved &= ConcurrencyStrategy.UNIQUE_VERSION_CLAIM.update(table, SETTING_NAME, 1);
+			InMemorySettingTable.Row current = table.query(SETTING_NAME);
+			table.write(SETTING_NAME, new InMemorySettingTable.Row(current.version + 1, current.counter + 1));
+		}
+		saved &= ConcurrencyStrategy.UNIQUE_VERSION_CLAIM.update(table, SETTING_NAME, 1);
+		int claimsAfterWrites = table.claimCount();
+
+		table.delete(SETTING_NAME);
+		table.write(SETTING_NAME, new InMemorySettingTable.Row(1, 0));
+		for (int i = 0; i < 3; i++) {
+			saved &= ConcurrencyStrategy.UNIQUE_VERSION_CLAIM.update(table, SETTING_NAME, 1);
+		}
+		// Created again by a compare-and-set save: the claim of the deleted record's last version is left to SettingCompactionJob
+		table.delete(SETTING_NAME);
+		saved &= ConcurrencyStrategy.UNIQUE_VERSION_CLAIM.update(table, SETTING_NAME, 1);
+
+		System.out.printf("claim lifecycle: %s, %d claim(s) after mixed writes, %d claim(s) at the end%n",
+				saved ? "all compare-and-set saves succeeded" : "CONFLICT", claimsAfterWrites, table.claimCount());
+	}
+
+	/**
+	 * Runs readers and writers concurrently for the configured duration
+	 *
+	 * @param strategy the update strategy used by the writers
+	 * @param nameCount number of setting names the threads spread over
+	 *
+	 * @return the merged results
+	 */
+	Result run(ConcurrencyStrategy strategy, int nameCount) throws InterruptedException {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < nameCount; i++) {
+			names.add(nameCount == 1 ? SETTING_NAME : SETTING_NAME + "@object:object_" + i + "__c");
+		}
+		InMemorySettingTable table = new InMemorySettingTable(names, roundTripNanos);
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicLong acknowledged = new AtomicLong();
+		AtomicLong failed = new AtomicLong();
+		List<LatencyRecorder> readLatencies = new ArrayList<>();
+		List<LatencyRecorder> writeLatencies = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+
+		for (int i = 0; i < readers + writers; i++) {
+			boolean isWriter = i >= readers;
+			LatencyRecorder latencies = new LatencyRecorder();
+			(isWriter ? writeLatencies : readLatencies).add(latencies);
+
+			Thread thread = new Thread(() -> {
+				awaitStart(start);
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (running.get()) {
+					String name = names.get(random.nextInt(names.size()));
+					long startNanos = System.nanoTime();
+					if (isWriter) {
+						if (strategy.update(table, name, maxAttempts)) {
+							acknowledged.incrementAndGet();
+						} else {
+							failed.incrementAndGet();
+						}
+					} else {
+						table.query(name);
+					}
+					latencies.record(System.nanoTime() - startNanos);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		long startMillis = System.currentTimeMillis();
+		start.countDown();
+		Thread.sleep(durationMillis);
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsedMillis = System.currentTimeMillis() - startMillis;
+
+		Result result = new Result(strategy, nameCount, elapsedMillis);
+		readLatencies.forEach(result.reads::addAll);
+		writeLatencies.forEach(result.writes::addAll);
+		result.acknowledged = acknowledged.get();
+		result.failed = failed.get();
+		result.lost = acknowledged.get() - table.totalCounter();
+		return result;
+	}
+
+	private static void awaitStart(CountDownLatch start) {
+		try {
+			start.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Results of one strategy and name count
+	 */
+	static final class Result {
+		final ConcurrencyStrategy strategy;
+		final int nameCount;
+		final long elapsedMillis;
+		final LatencyRecorder reads = new LatencyRecorder();
+		final LatencyRecorder writes = new LatencyRecorder();
+		long acknowledged;
+		long lost;
+		long failed;
+
+		Result(ConcurrencyStrategy strategy, int nameCount, long elapsedMillis) {
+			this.strategy = strategy;
+			this.nameCount = nameCount;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		void print() {
+			double seconds = elapsedMillis / 1000.0;
+			System.out.printf("%-24s %6d %10.0f %10.0f %8dus %9dus %8d %8d %8d%n",
+					strategy, nameCount, reads.getCount() / seconds, writes.getCount() / seconds,
+					reads.getPercentileMicros(99), writes.getPercentileMicros(99), acknowledged, lost, failed);
+		}
+	}
+}
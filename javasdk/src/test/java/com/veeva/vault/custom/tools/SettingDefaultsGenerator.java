@@ -0,0 +1,174 @@
+/*
+ * --------------------------------------------------------------------
+ * Tool:		SettingDefaultsGenerator
+ * Author:		Veeva Vault Developer Support
+ *---------------------------------------------------------------------
+ * Description:	Generates the SettingDefaults class from the JSON
+ * 				files in javasdk/settings-defaults, so default
+ * 				settings ship with the vault code package.
+ * 				This code runs on a developer machine only; it is
+ * 				not part of the vault code package.
+ *---------------------------------------------------------------------
+ * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.
+ *---------------------------------------------------------------------
+ */
+package com.veeva.vault.custom.tools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Each file is named <setting name>.json, e.g. com.veeva.vault.custom.settings.ExampleSettings.json,
+ * and holds the default settings document, including its schema_version.
+ * Run from the project root after changing a defaults file:
+ * 		mvn test-compile exec:java -Dexec.classpathScope=test
+ * 			-Dexec.mainClass=com.veeva.vault.custom.tools.SettingDefaultsGenerator
+ * The build runs it with --check after the test classes are compiled, and fails if the checked-in class
+ * does not match the defaults files, so a defaults change cannot ship without its regenerated class.
+ */
+public class SettingDefaultsGenerator {
+
+	private static final Path DEFAULTS_DIRECTORY = Paths.get("javasdk", "settings-defaults");
+	private static final Path OUTPUT_FILE = Paths.get("javasdk", "src", "main", "java",
+			"com", "veeva", "vault", "custom", "settings", "SettingDefaults.java");
+	private static final String JSON_EXTENSION = ".json";
+	private static final String CHECK_ARGUMENT = "--check";
+
+	/**
+	 * @param args optional --check, to verify the generated class instead of writing it,
+	 * 		and the project root, which defaults to the working directory
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean check = false;
+		Path projectDirectory = Paths.get("");
+		for (String arg : args) {
+			if (CHECK_ARGUMENT.equals(arg)) {
+				check = true;
+			} else {
+				projectDirectory = Paths.get(arg);
+			}
+		}
+
+		Map<String, String> jsonBySettingName = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(projectDirectory.resolve(DEFAULTS_DIRECTORY), "*" + JSON_EXTENSION)) {
+			for (Path file : files) {
+				String fileName = file.getFileName().toString();
+				String settingName = fileName.substring(0, fileName.length() - JSON_EXTENSION.length());
+				jsonBySettingName.put(settingName, minify(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+			}
+		}
+
+		Path outputFile = projectDirectory.resolve(OUTPUT_FILE);
+		String source = generate(jsonBySettingName);
+		if (check) {
+			String checkedInSource = Files.exists(outputFile) ? new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8) : "";
+			if (!source.equals(checkedInSource)) {
+				throw new IllegalStateException(OUTPUT_FILE + " does not match " + DEFAULTS_DIRECTORY
+						+ "; run SettingDefaultsGenerator from the project root and commit the result");
+			}
+			System.out.println(OUTPUT_FILE + " is up to date with " + jsonBySettingName.size() + " default setting(s)");
+			return;
+		}
+
+		Files.write(outputFile, source.getBytes(StandardCharsets.UTF_8));
+		System.out.println("Wrote " + jsonBySettingName.size() + " default setting(s) to " + outputFile);
+	}
+
+	/**
+	 * Removes whitespace outside of JSON strings
+	 */
+	static String minify(String json) {
+		StringBuilder minified = new StringBuilder(json.length());
+		boolean inString = false;
+		for (int i = 0; i < json.length(); i++) {
+			char c = json.charAt(i);
+			if (inString) {
+				minified.append(c);
+				if (c == '\\' && i + 1 < json.length()) {
+					minified.append(json.charAt(++i));
+				} else if (c == '"') {
+					inString = false;
+				}
+			} else if (c == '"') {
+				inString = true;
+				minified.append(c);
+			} else if (!Character.isWhitespace(c)) {
+				minified.append(c);
+			}
+		}
+		return minified.toString();
+	}
+
+	/**
+	 * @return the value as a Java string literal
+	 */
+	static String toJavaLiteral(String value) {
+		StringBuilder literal = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				literal.append('\\');
+			}
+			literal.append(c);
+		}
+		return literal.append('"').toString();
+	}
+
+	static String generate(Map<String, String> jsonBySettingName) {
+		StringBuilder source = new StringBuilder();
+		source.append("/*\n");
+		source.append(" * --------------------------------------------------------------------\n");
+		source.append(" * UserDefinedClass:\tSettingDefaults\n");
+		source.append(" * Author:\t\t\t\tVeeva Vault Developer Support\n");
+		source.append(" *---------------------------------------------------------------------\n");
+		source.append(" * Description:\tGENERATED by SettingDefaultsGenerator from the JSON\n");
+		source.append(" * \t\t\t\tfiles in javasdk/settings-defaults. Do not edit.\n");
+		source.append(" *---------------------------------------------------------------------\n");
+		source.append(" * Copyright (c) 2021 Veeva Systems Inc.  All Rights Reserved.\n");
+		source.append(" *\t\tThis code is based on pre-existing content developed and\n");
+		source.append(" * \t\towned by Veeva Systems Inc. and may only be used in connection\n");
+		source.append(" *\t\twith the deliverable with which it was provided to Customer.\n");
+		source.append(" *---------------------------------------------------------------------\n");
+		source.append(" */\n");
+		source.append("package com.veeva.vault.custom.settings;\n\n");
+		source.append("import com.veeva.vault.sdk.api.core.UserDefinedClassInfo;\n\n");
+		source.append("/**\n");
+		source.append(" * Read-only default settings documents, packaged with the vault code.\n");
+		source.append(" * Defaults are served without a query or a save and sit below every persisted settings layer.\n");
+		source.append(" */\n");
+		source.append("@UserDefinedClassInfo\n");
+		source.append("public final class SettingDefaults {\n\n");
+
+		int index = 0;
+		for (String json : jsonBySettingName.values()) {
+			source.append("\tprivate static final String DEFAULTS_").append(index++).append(" = ")
+					.append(toJavaLiteral(json)).append(";\n");
+		}
+		source.append("\n");
+
+		source.append("\tprivate SettingDefaults() {\n");
+		source.append("\t}\n\n");
+		source.append("\t/**\n");
+		source.append("\t * @param settingName the canonical setting name (fully qualified interface name)\n");
+		source.append("\t *\n");
+		source.append("\t * @return the default settings JSON, or null if the setting has no defaults\n");
+		source.append("\t */\n");
+		source.append("\tpublic static String getJson(String settingName) {\n");
+		index = 0;
+		for (String settingName : jsonBySettingName.keySet()) {
+			source.append("\t\tif (").append(toJavaLiteral(settingName)).append(".equals(settingName)) {\n");
+			source.append("\t\t\treturn DEFAULTS_").append(index++).append(";\n");
+			source.append("\t\t}\n");
+		}
+		source.append("\t\treturn null;\n");
+		source.append("\t}\n");
+		source.append("}\n");
+		return source.toString();
+	}
+}